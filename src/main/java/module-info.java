@@ -6,10 +6,15 @@ module org.meeuw.mapping.annotations {
     requires transitive org.slf4j;
 
     requires transitive com.fasterxml.jackson.databind;
+    requires static com.fasterxml.jackson.dataformat.smile;
+    requires static com.fasterxml.jackson.dataformat.cbor;
     requires json.path;
     requires transitive jakarta.xml.bind;
     requires org.meeuw.functional;
+    requires transitive java.sql;
 
     exports org.meeuw.mapping.annotations;
     exports org.meeuw.mapping;
+
+    uses org.meeuw.mapping.SourceAdapter;
 }
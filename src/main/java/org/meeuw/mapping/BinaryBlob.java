@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import java.lang.reflect.Field;
+
+import org.meeuw.mapping.annotations.JsonEncoding;
+
+/**
+ * Offered to the {@link Mapper#binaryWriteBack() write back hook} of a {@link Mapper}, after a textual json blob was parsed. This makes it possible
+ * to store the blob in a binary format, which can be parsed more efficiently the next time.
+ *
+ * @param source The source object that was mapped
+ * @param sourceField The field in the source object containing the json (or leading to it, if a {@link org.meeuw.mapping.annotations.Source#path()} was used). {@code null} if the json was read via a {@link SourceAdapter}.
+ * @param original The original (textual) value of the blob
+ * @param encoding The encoding of {@code bytes}
+ * @param bytes The blob, encoded in {@code encoding}
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public record BinaryBlob(
+    Object source,
+    Field sourceField,
+    Object original,
+    JsonEncoding encoding,
+    byte[] bytes) {
+}
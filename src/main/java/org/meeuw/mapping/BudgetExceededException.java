@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import lombok.Getter;
+
+/**
+ * Thrown if a mapping exceeds its {@link MappingBudget}. Unlike other problems with single fields, which are only logged, this stops the mapping.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Getter
+public class BudgetExceededException extends MapException {
+
+    public enum Limit {
+        BLOB_BYTES,
+        DEPTH,
+        JSON_PATH_RESULTS,
+        TIME
+    }
+
+    /**
+     * Which limit was exceeded
+     */
+    private final Limit limit;
+
+    /**
+     * The allowed value
+     */
+    private final long allowed;
+
+    /**
+     * The actual value, or {@code -1} if it is unknown (e.g. because parsing was stopped)
+     */
+    private final long actual;
+
+    /**
+     * Where the limit was exceeded (e.g. the source field containing the json)
+     */
+    private final String where;
+
+    public BudgetExceededException(Limit limit, long allowed, long actual, String where) {
+        super("%s: %s %s exceeds budget of %d".formatted(where, limit, actual < 0 ? "(unknown)" : actual, allowed));
+        this.limit = limit;
+        this.allowed = allowed;
+        this.actual = actual;
+        this.where = where;
+    }
+}
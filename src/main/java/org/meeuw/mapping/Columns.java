@@ -0,0 +1,416 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * The result of {@link Mapper#mapColumns(Iterable, Class, Class[])}. The {@link org.meeuw.mapping.annotations.Source} annotated fields of the destination class
+ * are the schema, and every field is represented by one {@link Column}, which stores the values of all rows in one (primitive) array.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public class Columns {
+
+    @Getter
+    private final Class<?> destinationClass;
+
+    private final Map<String, Column> columns;
+
+    @Getter
+    private int size;
+
+    Columns(Class<?> destinationClass, List<Field> schema, int expectedSize) {
+        this.destinationClass = destinationClass;
+        Map<String, Column> map = new LinkedHashMap<>();
+        for (Field field : schema) {
+            map.put(field.getName(), Column.of(field, expectedSize));
+        }
+        this.columns = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return The columns, in order of the fields in the destination class (fields of superclasses first)
+     */
+    public Map<String, Column> columns() {
+        return columns;
+    }
+
+    /**
+     * @param name Name of a field in the destination class
+     * @return The column for the given field
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public Column column(String name) {
+        Column column = columns.get(name);
+        if (column == null) {
+            throw new IllegalArgumentException("No column %s in %s (%s)".formatted(name, destinationClass, columns.keySet()));
+        }
+        return column;
+    }
+
+    void endRow() {
+        size++;
+    }
+
+    void trim() {
+        columns.values().forEach(Column::trim);
+    }
+
+    /**
+     * One column, containing the values for one destination field.
+     */
+    @Slf4j
+    public static abstract sealed class Column permits IntColumn, LongColumn, DoubleColumn, StringColumn, ObjectColumn {
+
+        @Getter
+        protected final Field field;
+        protected final BitSet nulls = new BitSet();
+        @Getter
+        protected int size;
+
+        protected Column(Field field) {
+            this.field = field;
+        }
+
+        static Column of(Field field, int expectedSize) {
+            Class<?> type = field.getType();
+            if (type == int.class || type == Integer.class || type == short.class || type == Short.class || type == byte.class || type == Byte.class) {
+                return new IntColumn(field, expectedSize);
+            }
+            if (type == long.class || type == Long.class) {
+                return new LongColumn(field, expectedSize);
+            }
+            if (type == double.class || type == Double.class || type == float.class || type == Float.class) {
+                return new DoubleColumn(field, expectedSize);
+            }
+            if (type == String.class) {
+                return new StringColumn(field, expectedSize);
+            }
+            return new ObjectColumn(field, expectedSize);
+        }
+
+        /**
+         * @param row A row number
+         * @return Whether the value at the given row is {@code null} (or could not be mapped)
+         */
+        public boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        void append(Object value) {
+            if (size == capacity()) {
+                resize(Math.max(size + 1, size + (size >> 1) + 1));
+            }
+            if (value == null) {
+                appendNull();
+            } else {
+                try {
+                    appendValue(value);
+                } catch (ClassCastException | NumberFormatException | ArithmeticException e) {
+                    log.warn("When adding '{}' to column {}: {}", value, field, e.getMessage());
+                    appendNull();
+                }
+            }
+            size++;
+        }
+
+        private void appendNull() {
+            nulls.set(size);
+            fillNull();
+        }
+
+        void trim() {
+            if (capacity() != size) {
+                resize(size);
+            }
+        }
+
+        /**
+         * Boxed version of the value at given row. Mainly useful for generic code and tests.
+         * @param row A row number
+         * @return The value, or {@code null}
+         */
+        public abstract Object get(int row);
+
+        /**
+         * Stores the value at row {@link #size}. The capacity is already sufficient.
+         */
+        protected abstract void appendValue(Object value);
+
+        /**
+         * Stores the placeholder for {@code null} at row {@link #size}, if it is not the default value of the array.
+         */
+        protected void fillNull() {
+        }
+
+        /**
+         * @return The length of the backing array
+         */
+        protected abstract int capacity();
+
+        /**
+         * Copies the backing array to one of the given length.
+         */
+        protected abstract void resize(int length);
+    }
+
+    /**
+     * Column for {@code int} (and {@code short} and {@code byte}) values.
+     */
+    public static final class IntColumn extends Column {
+        private int[] values;
+
+        IntColumn(Field field, int expectedSize) {
+            super(field);
+            values = new int[expectedSize];
+        }
+
+        /**
+         * @return The values for all rows. Rows which are {@link #isNull(int) null} contain {@code 0}.
+         */
+        public int[] values() {
+            return values;
+        }
+
+        public int getInt(int row) {
+            return values[row];
+        }
+
+        @Override
+        public Object get(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        protected void appendValue(Object value) {
+            values[size] = value instanceof Number n ? exactInt(n) : Integer.parseInt(value.toString());
+        }
+
+        private static int exactInt(Number n) {
+            if (n instanceof Integer || n instanceof Short || n instanceof Byte) {
+                return n.intValue();
+            }
+            final long l = n.longValue();
+            if (l != n.doubleValue() || (int) l != l) {
+                throw new ArithmeticException(n + " does not fit in an int");
+            }
+            return (int) l;
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void resize(int length) {
+            values = Arrays.copyOf(values, length);
+        }
+    }
+
+    /**
+     * Column for {@code long} values.
+     */
+    public static final class LongColumn extends Column {
+        private long[] values;
+
+        LongColumn(Field field, int expectedSize) {
+            super(field);
+            values = new long[expectedSize];
+        }
+
+        /**
+         * @return The values for all rows. Rows which are {@link #isNull(int) null} contain {@code 0}.
+         */
+        public long[] values() {
+            return values;
+        }
+
+        public long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        public Object get(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        protected void appendValue(Object value) {
+            values[size] = value instanceof Number n ? exactLong(n) : Long.parseLong(value.toString());
+        }
+
+        private static long exactLong(Number n) {
+            if (n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte) {
+                return n.longValue();
+            }
+            final long l = n.longValue();
+            if (l != n.doubleValue()) {
+                throw new ArithmeticException(n + " does not fit in a long");
+            }
+            return l;
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void resize(int length) {
+            values = Arrays.copyOf(values, length);
+        }
+    }
+
+    /**
+     * Column for {@code double} (and {@code float}) values.
+     */
+    public static final class DoubleColumn extends Column {
+        private double[] values;
+
+        DoubleColumn(Field field, int expectedSize) {
+            super(field);
+            values = new double[expectedSize];
+        }
+
+        /**
+         * @return The values for all rows. Rows which are {@link #isNull(int) null} contain {@code NaN}.
+         */
+        public double[] values() {
+            return values;
+        }
+
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        public Object get(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        protected void appendValue(Object value) {
+            values[size] = value instanceof Number n ? n.doubleValue() : Double.parseDouble(value.toString());
+        }
+
+        @Override
+        protected void fillNull() {
+            values[size] = Double.NaN;
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void resize(int length) {
+            values = Arrays.copyOf(values, length);
+        }
+    }
+
+    /**
+     * Column for {@link String} values. These are dictionary encoded, every distinct value is stored only once.
+     */
+    public static final class StringColumn extends Column {
+        private int[] codes;
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> index = new HashMap<>();
+
+        StringColumn(Field field, int expectedSize) {
+            super(field);
+            codes = new int[expectedSize];
+        }
+
+        /**
+         * @return For every row, the index in the {@link #dictionary()}, or {@code -1} if the value is {@code null}
+         */
+        public int[] codes() {
+            return codes;
+        }
+
+        /**
+         * @return All distinct values, in order of appearance
+         */
+        public List<String> dictionary() {
+            return Collections.unmodifiableList(dictionary);
+        }
+
+        @Override
+        public String get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary.get(code);
+        }
+
+        @Override
+        protected void appendValue(Object value) {
+            String string = value.toString();
+            Integer code = index.get(string);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(string);
+                index.put(string, code);
+            }
+            codes[size] = code;
+        }
+
+        @Override
+        protected void fillNull() {
+            codes[size] = -1;
+        }
+
+        @Override
+        protected int capacity() {
+            return codes.length;
+        }
+
+        @Override
+        protected void resize(int length) {
+            codes = Arrays.copyOf(codes, length);
+        }
+    }
+
+    /**
+     * Column for all other values.
+     */
+    public static final class ObjectColumn extends Column {
+        private Object[] values;
+
+        ObjectColumn(Field field, int expectedSize) {
+            super(field);
+            values = new Object[expectedSize];
+        }
+
+        public Object[] values() {
+            return values;
+        }
+
+        @Override
+        public Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected void appendValue(Object value) {
+            values[size] = value;
+        }
+
+        @Override
+        protected int capacity() {
+            return values.length;
+        }
+
+        @Override
+        protected void resize(int length) {
+            values = Arrays.copyOf(values, length);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.meeuw.mapping.impl.Recycling;
+
+/**
+ * A pool of sub mapped objects, used by {@link Mapper#mapInto(Object, Object, Class[])}. See {@link Mapper#withDestinationPool(DestinationPool)}.
+ * <p>
+ * When a recycled destination is mapped into again, the sub objects it referenced (e.g. the elements of a list) are given back to the pool,
+ * and are reused for the next sub mappings. Only objects that were created by the pool itself are ever given back, so objects that are shared
+ * with something else (e.g. taken from the source as is, or {@link org.meeuw.mapping.annotations.Interned interned}) are left alone.
+ * <p>
+ * The pool also remembers which collections and maps were created by the mapper itself. Only those are cleared and refilled when a destination is
+ * recycled, so collections that were taken from the source as is are never touched.
+ * <p>
+ * The pool is per thread, so a mapper with a pool can still be used by several threads at once. Objects handed out are only valid until the
+ * destination referencing them is recycled. The pool only weakly refers to the objects it handed out and the collections it adopted, so destinations
+ * that are never recycled can just be garbage collected.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public final class DestinationPool {
+
+    private final int maxPerClass;
+
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxPerClass The maximal number of free objects kept per class (and per thread)
+     */
+    public DestinationPool(int maxPerClass) {
+        this.maxPerClass = maxPerClass;
+    }
+
+    /**
+     * Returns a free instance of {@code type}, or creates a new one. Either way, the object belongs to the pool, and may be {@link #release(Object) released} later.
+     * <p>
+     * This is used by the {@link Mapper}, and is not meant to be called directly.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T acquire(Class<T> type) throws ReflectiveOperationException {
+        final State s = state.get();
+        final ArrayDeque<Object> free = s.free.get(type);
+        T result = free == null ? null : (T) free.poll();
+        if (result == null) {
+            misses.increment();
+            result = type.getDeclaredConstructor().newInstance();
+        } else {
+            hits.increment();
+        }
+        s.owned.add(result);
+        return result;
+    }
+
+    /**
+     * Gives an object back to the pool, if it was {@link #acquire(Class) acquired} from it (and not yet released).
+     * <p>
+     * This is used by the {@link Mapper}, and is not meant to be called directly.
+     * @return Whether the object belonged to the pool. If not, it must not be touched.
+     */
+    public boolean release(Object object) {
+        final State s = state.get();
+        if (!s.owned.remove(object)) {
+            return false;
+        }
+        final ArrayDeque<Object> free = s.free.computeIfAbsent(object.getClass(), c -> new ArrayDeque<>());
+        if (free.size() < maxPerClass) {
+            free.push(object);
+        } else {
+            // dropped, so its collections will not be refilled either
+            forgetAdopted(s, object);
+        }
+        return true;
+    }
+
+    private static void forgetAdopted(State s, Object object) {
+        for (Field field : Recycling.managedFields(object.getClass())) {
+            if (field.getType().isPrimitive()) {
+                continue;
+            }
+            try {
+                final Object value = field.get(object);
+                if (value != null) {
+                    s.adopted.remove(value);
+                }
+            } catch (IllegalAccessException e) {
+                log.warn("Could not read {}: {}", field, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Registers a collection or map that was created by the mapper, so that it may be {@link #adopted(Object) cleared and refilled} when the
+     * destination holding it is recycled.
+     * <p>
+     * This is used by the {@link Mapper}, and is not meant to be called directly.
+     */
+    public void adopt(Object container) {
+        state.get().adopted.add(container);
+    }
+
+    /**
+     * This is used by the {@link Mapper}, and is not meant to be called directly.
+     * @return Whether {@code container} was {@link #adopt(Object) adopted}, and hence is not shared with anything else
+     */
+    public boolean adopted(Object container) {
+        return state.get().adopted.contains(container);
+    }
+
+    /**
+     * Forgets all objects of the current thread, e.g. when the destinations that were recycled are not used any more.
+     */
+    public void clear() {
+        state.remove();
+    }
+
+    /**
+     * @return The number of free objects for the current thread
+     */
+    public int size() {
+        int size = 0;
+        for (ArrayDeque<Object> free : state.get().free.values()) {
+            size += free.size();
+        }
+        return size;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "DestinationPool{maxPerClass=" + maxPerClass + ", hits=" + hits() + ", misses=" + misses() + "}";
+    }
+
+    private static final class State {
+        private final Map<Class<?>, ArrayDeque<Object>> free = new HashMap<>();
+        private final WeakIdentitySet owned = new WeakIdentitySet();
+        private final WeakIdentitySet adopted = new WeakIdentitySet();
+    }
+
+    /**
+     * A set of objects, compared by identity, which doesn't keep them from being garbage collected.
+     */
+    private static final class WeakIdentitySet {
+        private final Set<Key> keys = new HashSet<>();
+        private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+        void add(Object object) {
+            expunge();
+            keys.add(new Key(object, queue));
+        }
+
+        boolean remove(Object object) {
+            expunge();
+            return keys.remove(new Key(object, null));
+        }
+
+        boolean contains(Object object) {
+            return keys.contains(new Key(object, null));
+        }
+
+        private void expunge() {
+            for (Object collected = queue.poll(); collected != null; collected = queue.poll()) {
+                keys.remove(collected);
+            }
+        }
+    }
+
+    private static final class Key extends WeakReference<Object> {
+        private final int hash;
+
+        Key(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key key)) {
+                return false;
+            }
+            final Object referent = get();
+            return referent != null && referent == key.get();
+        }
+    }
+}
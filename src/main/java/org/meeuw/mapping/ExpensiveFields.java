@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import lombok.With;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Configures the concurrent evaluation of expensive fields within one object. See {@link Mapper#withExpensiveFields(ExpensiveFields)}.
+ * <p>
+ * The json pointers and json paths of fields that are expensive are evaluated on {@code executor}, while the other fields are mapped. The json blobs
+ * are parsed on the calling thread before, and the results are converted (and possibly sub mapped) and written on the calling thread afterwards. The evaluations
+ * themselves only read the parsed json, which is not modified.
+ *
+ * @param executor The executor to evaluate expensive fields on
+ * @param threshold If not {@code null}, fields are also considered expensive if their {@link MappingSampler sampled} average time exceeds this. So this
+ *                  only has effect if the mapper has a sampler too.
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@With
+public record ExpensiveFields(
+    Executor executor,
+    Duration threshold) {
+
+    /**
+     * Only fields annotated with {@link org.meeuw.mapping.annotations.Expensive} are considered expensive.
+     * @param executor The executor to evaluate expensive fields on
+     */
+    public ExpensiveFields(Executor executor) {
+        this(executor, null);
+    }
+}
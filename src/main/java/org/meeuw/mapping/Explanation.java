@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import java.util.List;
+
+/**
+ * Describes how a {@link Mapper} maps objects of a certain source class to a certain destination class. See {@link Mapper#explain(Class, Class, Class[])}.
+ *
+ * @param sourceClass The class of the source objects
+ * @param destinationClass The class of the destination objects
+ * @param fields For every destination field that will be mapped, how that happens. In the order they are mapped.
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public record Explanation(
+    Class<?> sourceClass,
+    Class<?> destinationClass,
+    List<FieldExplanation> fields) {
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(sourceClass.getName()).append(" -> ").append(destinationClass.getName());
+        for (FieldExplanation field : fields) {
+            builder.append("\n  ").append(field);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * How a value is obtained from a source object
+     */
+    public enum Access {
+        /**
+         * The value of a field is copied as it is, without any conversion
+         */
+        DIRECT_COPY,
+        /**
+         * The value of a field is read, and converted if needed
+         */
+        FIELD,
+        /**
+         * A path of fields is followed
+         */
+        PATH,
+        /**
+         * The value is read via a {@link SourceAdapter}
+         */
+        ADAPTER,
+        /**
+         * A json blob is parsed, and a json pointer evaluated on it
+         */
+        JSON_POINTER,
+        /**
+         * A json blob is parsed, and a json path evaluated on it
+         */
+        JSON_PATH,
+        /**
+         * The source object itself is json
+         */
+        JSON
+    }
+
+    /**
+     * @param destinationField The name of the destination field
+     * @param annotatedSourceClass The {@link org.meeuw.mapping.annotations.Source#sourceClass()} of the matching annotation
+     * @param sourceField The name of the source field (or json field, or column, ...), if any
+     * @param path The path followed from the source field
+     * @param access How the value is obtained
+     * @param expression The json pointer or json path, if any
+     * @param conversions The conversions that may be applied to the value, in order
+     * @param blob If the value comes from a json blob, a description of it (the source field and path). Fields with the same blob share the parsed json.
+     * @param builder Whether the destination is a builder, so that the annotation was found on the built class
+     */
+    public record FieldExplanation(
+        String destinationField,
+        Class<?> annotatedSourceClass,
+        String sourceField,
+        List<String> path,
+        Access access,
+        String expression,
+        List<String> conversions,
+        String blob,
+        boolean builder
+    ) {
+        @Override
+        public String toString() {
+            return destinationField + " <- " + access
+                + (sourceField == null ? "" : " " + sourceField)
+                + (path.isEmpty() ? "" : " " + String.join(".", path))
+                + (expression == null ? "" : " " + expression)
+                + (conversions.isEmpty() ? "" : " " + conversions)
+                + (builder ? " (builder)" : "");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.meeuw.mapping.impl.Util;
+
+/**
+ * A selection of destination fields. Can be used to map only a part of the destination object, see {@link Mapper#map(Object, Object, FieldMask, Class[])}.
+ * Fields that are not selected are not only left alone, their values are not even calculated. E.g. if all fields that are sourced from a certain json blob
+ * are excluded, that blob will not be parsed.
+ * <p>
+ * Masks are immutable, and are best reused, because per destination class they are compiled to a {@link BitSet} (which is cached).
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public final class FieldMask {
+
+    private final Set<String> fields;
+
+    private final Map<Class<?>, BitSet> compiled = new ConcurrentHashMap<>();
+
+    private FieldMask(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @param fields Names of the destination fields to include
+     * @return A new mask
+     */
+    public static FieldMask of(String... fields) {
+        return of(Arrays.asList(fields));
+    }
+
+    /**
+     * @param fields Names of the destination fields to include
+     * @return A new mask
+     */
+    public static FieldMask of(Collection<String> fields) {
+        return new FieldMask(Set.copyOf(fields));
+    }
+
+    public Set<String> fields() {
+        return fields;
+    }
+
+    /**
+     * @param destinationClass A destination class
+     * @return A bitset over {@link Util#destinationFields(Class)}. Names which don't occur in {@code destinationClass} are ignored.
+     */
+    BitSet compile(Class<?> destinationClass) {
+        return compiled.computeIfAbsent(destinationClass, c -> {
+            BitSet result = new BitSet();
+            List<Field> destinationFields = Util.destinationFields(c);
+            for (int i = 0; i < destinationFields.size(); i++) {
+                if (fields.contains(destinationFields.get(i).getName())) {
+                    result.set(i);
+                }
+            }
+            if (result.cardinality() < fields.size()) {
+                log.debug("Not all of {} found in {}", fields, c);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FieldMask other && fields.equals(other.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return fields.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "FieldMask" + fields;
+    }
+}
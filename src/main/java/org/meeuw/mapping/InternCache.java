@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.meeuw.mapping.annotations.Interned;
+
+/**
+ * Holds the objects that were sub mapped to classes annotated with {@link Interned}, so that identical json sub structures (e.g. the same
+ * broadcaster occurring in thousands of records) are mapped only once, and the result is shared.
+ * <p>
+ * The cache is not bounded. It is meant to live as long as a batch of objects is mapped (and as long as the mapped objects are kept), so
+ * typically a new one is created per batch, with {@link Mapper#withInternCache(InternCache)}.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public final class InternCache {
+
+    private final Map<Key, Object> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Returns the object for the given key, or creates it.
+     * <p>
+     * This is used by the {@link Mapper}, and is not meant to be called directly.
+     * @param destinationClass The class of the object
+     * @param key The key identifying the object within {@code destinationClass} (e.g. the source json)
+     * @param mapping Creates the object if it is not yet in the cache
+     * @return The shared object
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T intern(Class<T> destinationClass, Object key, Supplier<T> mapping) {
+        final Key k = new Key(destinationClass, key);
+        Object result = cache.get(k);
+        if (result != null) {
+            hits.increment();
+            return (T) result;
+        }
+        misses.increment();
+        // not computeIfAbsent, since the mapping may recursively intern other objects
+        final T mapped = mapping.get();
+        result = cache.putIfAbsent(k, mapped);
+        return result == null ? mapped : (T) result;
+    }
+
+    /**
+     * @return The number of objects in the cache
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return How many times an object could be taken from the cache
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return How many times an object had to be mapped
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    public void clear() {
+        cache.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "InternCache{size=" + size() + ", hits=" + hits() + ", misses=" + misses() + "}";
+    }
+
+    private record Key(Class<?> destinationClass, Object key) {
+    }
+}
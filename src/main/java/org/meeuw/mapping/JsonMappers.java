@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * Presets for the {@link ObjectMapper} that a {@link Mapper} uses to parse textual json. See {@link Mapper#withObjectMapper(ObjectMapper)}.
+ * <p>
+ * Every call creates a new instance, which can be tuned further (e.g. with {@link com.fasterxml.jackson.core.StreamReadConstraints}), or an
+ * application can just use its own.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public final class JsonMappers {
+
+    private JsonMappers() {
+        // no instances
+    }
+
+    /**
+     * The default. Unquoted field names, single quotes and comments are allowed.
+     */
+    public static ObjectMapper lenient() {
+        return JsonMapper.builder()
+            .enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonParser.Feature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonParser.Feature.ALLOW_COMMENTS)
+            .enable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+            .build();
+    }
+
+    /**
+     * For trusted, well-formed json only. None of the lenient features are enabled (which makes the tokenizer faster), and
+     * no source references are kept for error messages.
+     */
+    public static ObjectMapper strict() {
+        return JsonMapper.builder()
+            .enable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+            .disable(StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION)
+            .build();
+    }
+}
@@ -1,7 +1,7 @@
 package org.meeuw.mapping;
 
 /**
- * May get thrown by {@link Mapper}, currently only wrapping {@link ReflectiveOperationException}s.
+ * May get thrown by {@link Mapper}, wrapping {@link ReflectiveOperationException}s, or e.g. as {@link BudgetExceededException}.
  * @since 0.2
  */
 public class MapException extends RuntimeException {
@@ -13,4 +13,13 @@ public class MapException extends RuntimeException {
     public MapException(ReflectiveOperationException e) {
         super(e);
     }
+
+    /**
+     * Constructor
+     * @param message description of the problem
+     * @since 0.7
+     */
+    public MapException(String message) {
+        super(message);
+    }
 }
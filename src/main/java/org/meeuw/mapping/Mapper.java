@@ -6,16 +6,29 @@ package org.meeuw.mapping;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 import java.util.function.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.meeuw.functional.Functions;
+import org.meeuw.mapping.annotations.Deduplicate;
+import org.meeuw.mapping.annotations.Expensive;
+import org.meeuw.mapping.annotations.JsonEncoding;
 import org.meeuw.mapping.annotations.Source;
 import org.meeuw.mapping.impl.*;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import static org.meeuw.mapping.annotations.Source.UNSET;
 import static org.meeuw.mapping.impl.Util.*;
@@ -62,6 +75,114 @@ public class Mapper {
     @Getter
     private final Map<Class<?>, List<BiFunction<Object, Field, Optional<Object>>>> customMappers = Collections.emptyMap();
 
+    /**
+     * If set, this is called every time a textual json blob was parsed, with the blob encoded in {@link #binaryWriteBackEncoding()}. So it can be stored like that,
+     * and parsed faster next time.
+     * @since 0.7
+     */
+    @With
+    @Getter
+    private final Consumer<BinaryBlob> binaryWriteBack;
+
+    /**
+     * The binary encoding to offer to {@link #binaryWriteBack()}
+     * @since 0.7
+     */
+    @With
+    @lombok.Builder.Default
+    @Getter
+    private final JsonEncoding binaryWriteBackEncoding = JsonEncoding.SMILE;
+
+    /**
+     * If set, json objects that are sub mapped to a class annotated with {@link org.meeuw.mapping.annotations.Interned} are
+     * mapped only once per distinct content, and shared.
+     * @since 0.7
+     */
+    @With
+    @Getter
+    private final InternCache internCache;
+
+    /**
+     * If set, the results of {@link #map(Object, Class, Class[])} for sources annotated with {@link org.meeuw.mapping.annotations.Versioned} are cached, and reused
+     * as long as the version of the source didn't change.
+     * @since 0.7
+     */
+    @With
+    @Getter
+    private final MappingResultCache resultCache;
+
+    /**
+     * If set, all string values are deduplicated using this pool before they are set. Otherwise, only fields annotated with
+     * {@link org.meeuw.mapping.annotations.Deduplicate} are, using {@link StringPool#DEFAULT}.
+     * @since 0.7
+     */
+    @With
+    @Getter
+    private final StringPool stringPool;
+
+    /**
+     * If set, the time spent per field is measured for a fraction of the mappings, and slow mappings are reported.
+     * @since 0.7
+     */
+    @With
+    @Getter
+    private final MappingSampler sampler;
+
+    /**
+     * The object mapper used to parse textual json (for json blobs, {@link #stream(InputStream, Class, Class[]) streams} and json paths). Defaults to a
+     * {@link JsonMappers#lenient() lenient} one. Json blobs in trusted sources can be parsed faster with a {@link JsonMappers#strict() strict} one.
+     * @since 0.7
+     */
+    @With
+    @lombok.Builder.Default
+    @Getter
+    private final ObjectMapper objectMapper = JsonUtil.MAPPER;
+
+    /**
+     * If set, destination fields are written via their setters ({@code setTitle(String)}, or fluent {@code title(String)}) if they have one, e.g. because these validate
+     * their argument. Destinations that are builders are always written via their methods.
+     * @since 0.7
+     */
+    @With
+    @Getter
+    private final boolean writesViaSetters;
+
+    /**
+     * If set, objects that are sub mapped while {@link #mapInto(Object, Object, Class[]) mapping into a recycled destination} are taken from this pool, and given
+     * back to it when that destination is recycled again.
+     * @since 0.7
+     */
+    @With
+    @Getter
+    private final DestinationPool destinationPool;
+
+    /**
+     * Limits on the resources that json sourced values may use. If one is exceeded, the mapping stops with a {@link BudgetExceededException}. Defaults to {@link MappingBudget#UNLIMITED}.
+     * @since 0.7
+     */
+    @With
+    @lombok.Builder.Default
+    @Getter
+    private final MappingBudget budget = MappingBudget.UNLIMITED;
+
+    /**
+     * If set, the json pointers and json paths of expensive fields are evaluated concurrently. See {@link ExpensiveFields}.
+     * @since 0.7
+     */
+    @With
+    @Getter
+    private final ExpensiveFields expensiveFields;
+
+    /**
+     * If set, textual json blobs ({@code byte[]} and {@link String}) from which values are taken with json pointers or simple json paths are not parsed into a tree, but only
+     * {@link JsonTape indexed}, and only the values that are needed are decoded. That is cheaper for big blobs of which only some values are used. Blobs that are not
+     * strict json, and more complex json paths, still use a tree.
+     * @since 0.7
+     */
+    @With
+    @Getter
+    private final boolean indexesJson;
+
 
     /**
      * Creates a new instance (using the no-args constructor) and copies all {@link Source} annotated fields (that match) from source to it.
@@ -70,12 +191,23 @@ public class Mapper {
      * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
      * @param <T> Type of the destination object
      * @see #map(Object, Object, Class...)
-     * @return a new object of class {@code destinationClass} which all fields filled that are found in {@code source}
+     * @return a new object of class {@code destinationClass} which all fields filled that are found in {@code source}. If a {@link #resultCache()} is configured, this may be a cached (shared) object.
      */
+    @SuppressWarnings("unchecked")
     public <T> T map(Object source, Class<T> destinationClass, Class<?>... groups)  {
+        final MappingResultCache.Key key = resultCache == null ? null : resultCache.key(source, destinationClass, Groups.requested(groups));
+        if (key != null) {
+            final Object cached = resultCache.get(key);
+            if (cached != null) {
+                return (T) cached;
+            }
+        }
         try {
             T destination = destinationClass.getDeclaredConstructor().newInstance();
             map(source, destination, groups);
+            if (key != null) {
+                resultCache.put(key, destination);
+            }
             return destination;
         } catch (ReflectiveOperationException e) {
             throw new MapException(e);
@@ -92,15 +224,134 @@ public class Mapper {
      * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
      */
     public void map(Object source, Object destination, Class<?>... groups) {
+        map(source, destination, null, groups);
+    }
+
+    /**
+     * As {@link #map(Object, Class, Class[])}, but only the fields selected by {@code mask} are mapped.
+     * @param source The source object copy data from
+     * @param destinationClass The class to create a destination object for
+     * @param mask The fields to map. If {@code null}, all fields are mapped.
+     * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
+     * @param <T> Type of the destination object
+     * @return a new object of class {@code destinationClass}, with the selected fields filled that are found in {@code source}
+     * @since 0.7
+     */
+    public <T> T map(Object source, Class<T> destinationClass, FieldMask mask, Class<?>... groups)  {
+        try {
+            T destination = destinationClass.getDeclaredConstructor().newInstance();
+            map(source, destination, mask, groups);
+            return destination;
+        } catch (ReflectiveOperationException e) {
+            throw new MapException(e);
+        }
+    }
+
+    /**
+     * As {@link #map(Object, Object, Class[])}, but only the fields selected by {@code mask} are mapped.
+     * @param source The source object
+     * @param destination The destination object
+     * @param mask The fields to map. If {@code null}, all fields are mapped.
+     * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
+     * @since 0.7
+     */
+    public void map(Object source, Object destination, FieldMask mask, Class<?>... groups) {
+        map(source, destination, mask, false, groups);
+    }
+
+    /**
+     * Maps into a destination object that was used before, e.g. one instance per thread in a high throughput pipeline, where every mapped object is consumed
+     * (serialized) right away. First exactly the fields that are managed by {@link Source} annotations are reset, so nothing of the previous source remains, and then
+     * {@code source} is mapped into it.
+     * <p>
+     * If a {@link #destinationPool()} is configured, the objects the destination referenced are reused for the sub mappings, and collections and maps that the
+     * mapper created itself are cleared and refilled, rather than replaced. They are so only valid until the destination is recycled again. Collections and
+     * maps that were taken from a source as is, are never touched.
+     * @param source The source object
+     * @param destination The destination object to reuse
+     * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
+     * @param <T> Type of the destination object
+     * @return {@code destination}
+     * @since 0.7
+     */
+    public <T> T mapInto(Object source, T destination, Class<?>... groups) {
+        map(source, destination, null, true, groups);
+        return destination;
+    }
+
+    private void map(Object source, Object destination, FieldMask mask, boolean reuse, Class<?>... groups) {
+        final Mapper previous = CURRENT.get();
+        final MappingContext context = MappingContext.enter(source, destination, destination.getClass());
+        try {
+            CURRENT.set(this);
+            context.startClock(budget.maxTime());
+            if (reuse) {
+                context.startReusing();
+                Recycling.reset(this, destination);
+            }
+            privateMap(source, destination, destination.getClass(), mask, groups);
+            context.drain();
+        } finally {
+            context.leave();
+            CURRENT.set(previous);
+            if (clearsJsonCacheEveryTime) {
+                JsonUtil.clearCache();
+            }
+        }
+    }
+
+    /**
+     * Maps one source object to several destination classes at once. Json blobs in the source are parsed only once, and the results
+     * of json pointers and json paths on them are shared by all destinations.
+     * <p>
+     * Only that is shared. The plans of the destination classes are still executed one after another, so other source fields are read, and all values
+     * are converted, for every destination that needs them.
+     * @param source The source object
+     * @param destinationClasses The classes to create destination objects for
+     * @return A map, with for every destination class the mapped object
+     * @see #mapToAll(Object, Collection, Class[])
+     * @since 0.7
+     */
+    public Map<Class<?>, Object> mapToAll(Object source, Class<?>... destinationClasses) {
+        return mapToAll(source, Arrays.asList(destinationClasses));
+    }
+
+    /**
+     * As {@link #mapToAll(Object, Class[])}, but with groups.
+     * @param source The source object
+     * @param destinationClasses The classes to create destination objects for
+     * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
+     * @return A map, with for every destination class the mapped object
+     * @since 0.7
+     */
+    public Map<Class<?>, Object> mapToAll(Object source, Collection<? extends Class<?>> destinationClasses, Class<?>... groups) {
+        final Map<Class<?>, Object> result = new LinkedHashMap<>();
+        final Mapper previous = CURRENT.get();
         try {
             CURRENT.set(this);
-            privateMap(source, destination, destination.getClass(), groups);
+            JsonUtil.startSharingEvaluations();
+            for (Class<?> destinationClass : destinationClasses) {
+                Object destination = destinationClass.getDeclaredConstructor().newInstance();
+                final MappingContext context = MappingContext.enter(source, destination, destinationClass);
+                try {
+                    context.startClock(budget.maxTime());
+                    privateMap(source, destination, destinationClass, null, groups);
+                    context.drain();
+                } finally {
+                    context.leave();
+                }
+                result.put(destinationClass, destination);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new MapException(e);
         } finally {
-            CURRENT.remove();
+            CURRENT.set(previous);
+            JsonUtil.stopSharingEvaluations();
             if (clearsJsonCacheEveryTime) {
                 JsonUtil.clearCache();
             }
         }
+        return Collections.unmodifiableMap(result);
     }
 
     /**
@@ -111,7 +362,157 @@ public class Mapper {
      * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
      */
      public void subMap(Object source, Object destination, Class<?> destinationClass, Class<?>... groups) {
-         privateMap(source, destination, destinationClass, groups);
+         privateMap(source, destination, destinationClass, null, groups);
+    }
+
+    /**
+     * Maps json records read from an {@link InputStream} one by one. The input may be 'ndjson' (json records separated by newlines), or one big json array.
+     * Records are parsed only when the stream is consumed, so memory usage does not depend on the size of the input.
+     * @param inputStream The input to read from. It is closed when the resulting stream is closed.
+     * @param destinationClass The class to create destination objects for
+     * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
+     * @return A lazy stream of mapped objects
+     * @since 0.7
+     */
+    public <T> Stream<T> stream(InputStream inputStream, Class<T> destinationClass, Class<?>... groups) throws IOException {
+        return JsonStreams.stream(objectMapper, inputStream)
+            .map(json -> map(json, destinationClass, groups));
+    }
+
+    /**
+     * As {@link #stream(InputStream, Class, Class[])}, but reads a file, which is memory mapped. If the file contains ndjson,
+     * the resulting stream can be efficiently processed {@link Stream#parallel() in parallel}.
+     * @param path The file to read from
+     * @param destinationClass The class to create destination objects for
+     * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
+     * @return A lazy stream of mapped objects. It should be closed, to close the file.
+     * @since 0.7
+     */
+    public <T> Stream<T> stream(Path path, Class<T> destinationClass, Class<?>... groups) throws IOException {
+        return JsonStreams.stream(objectMapper, path)
+            .map(json -> map(json, destinationClass, groups));
+    }
+
+    /**
+     * Maps the items of a {@link Flow.Publisher}, on the {@link ForkJoinPool#commonPool() common pool}, keeping their order.
+     * @see #mapPublisher(Flow.Publisher, Class, int, Executor, boolean, Class[])
+     * @since 0.7
+     */
+    public <T> Flow.Publisher<T> mapPublisher(Flow.Publisher<?> sources, Class<T> destinationClass, int concurrency, Class<?>... groups) {
+        return mapPublisher(sources, destinationClass, concurrency, ForkJoinPool.commonPool(), true, groups);
+    }
+
+    /**
+     * Maps the items of a {@link Flow.Publisher}. The demand of the subscriber is honored: no more items are requested from {@code sources} than
+     * the subscriber requested, and at most {@code concurrency} items are being mapped (or waiting to be delivered) at the same time.
+     * <p>
+     * If mapping an item fails (with an exception), the subscriber receives that exception via {@link Flow.Subscriber#onError(Throwable)}, and the subscription to {@code sources} is cancelled.
+     * @param sources The source objects
+     * @param destinationClass The class to create destination objects for
+     * @param concurrency The maximal number of items that are mapped at the same time
+     * @param executor The executor to do the mappings on (e.g. one that uses virtual threads)
+     * @param ordered Whether the mapped objects must be delivered in the order of the source objects. Otherwise, they are delivered as soon as they are ready.
+     * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
+     * @return A publisher of mapped objects. Every subscriber to it subscribes to {@code sources} once.
+     * @since 0.7
+     */
+    public <T> Flow.Publisher<T> mapPublisher(Flow.Publisher<?> sources, Class<T> destinationClass, int concurrency, Executor executor, boolean ordered, Class<?>... groups) {
+        return new MappingPublisher<>(this, sources, destinationClass, concurrency, executor, ordered, groups);
+    }
+
+    /**
+     * Maps the rows of a {@link ResultSet}, without the need for an intermediate object per row. The {@link Source#field()} of the annotations
+     * refer to the column labels then, and the {@link Source#sourceClass()} should be {@link ResultSet} (or left unspecified).
+     * <p>
+     * Columns are read only once per row, so if several fields are sourced from the same json column, it is parsed only once.
+     * @param resultSet The result set. Rows are read when the stream is consumed. It is not closed by this method.
+     * @param destinationClass The class to create destination objects for
+     * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
+     * @return A lazy stream of mapped objects
+     * @since 0.7
+     */
+    public <T> Stream<T> mapResultSet(ResultSet resultSet, Class<T> destinationClass, Class<?>... groups) throws SQLException {
+        final ResultSetSourceAdapter.ColumnIndexes indexes = new ResultSetSourceAdapter.ColumnIndexes(resultSet);
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+                final T mapped;
+                ResultSetSourceAdapter.startRow(indexes);
+                try {
+                    mapped = map(resultSet, destinationClass, groups);
+                } finally {
+                    ResultSetSourceAdapter.endRow();
+                    JsonUtil.clearCache();
+                }
+                action.accept(mapped);
+                return true;
+            }
+        }, false);
+    }
+
+    /**
+     * Maps a (large) number of source objects at once, but does not create destination objects. The {@link Source} annotated fields of
+     * {@code destinationClass} are used as a schema, and the values are collected per field into {@link Columns.Column columns}, which are backed
+     * by primitive arrays where possible.
+     * <p>
+     * The json cache is cleared after every row, since every source object has its own json blobs.
+     * @param sources The source objects to map
+     * @param destinationClass The class of which the {@link Source} annotated fields define the columns
+     * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
+     * @return A {@link Columns} object, containing a column for every {@link Source} annotated field in {@code destinationClass}
+     * @since 0.7
+     */
+    public Columns mapColumns(Iterable<?> sources, Class<?> destinationClass, Class<?>... groups) {
+        final List<Field> schema = new ArrayList<>();
+        for (Class<?> c = destinationClass; c != null; c = c.getSuperclass()) {
+            List<Field> declared = new ArrayList<>();
+            for (Field field : c.getDeclaredFields()) {
+                if (!getAllSourceAnnotations(field).isEmpty()) {
+                    declared.add(field);
+                }
+            }
+            schema.addAll(0, declared);
+        }
+        final Columns result = new Columns(destinationClass, schema, sources instanceof Collection<?> collection ? collection.size() : 16);
+        final Columns.Column[] columns = result.columns().values().toArray(new Columns.Column[0]);
+        final long requestedGroups = Groups.requested(groups);
+        final Mapper previous = CURRENT.get();
+        try {
+            CURRENT.set(this);
+            for (Object source : sources) {
+                final Class<?> sourceClass = source.getClass();
+                // custom mappers are looked up like the setters of a plan do
+                final boolean json = isJsonField(sourceClass);
+                for (Columns.Column column : columns) {
+                    final Field field = column.field();
+                    Object value = sourceGetter(sourceClass, field, destinationClass, requestedGroups)
+                        .map(g -> g.get(source))
+                        .orElse(null);
+                    if (value != null) {
+                        try {
+                            value = ValueMapper.valueFor(this, field, json ? destinationClass : field.getType(), value);
+                        } catch (ReflectiveOperationException e) {
+                            log.warn("When converting '{}' for {}: {}", value, field, e.getMessage());
+                            value = null;
+                        }
+                    }
+                    column.append(value);
+                }
+                result.endRow();
+                JsonUtil.clearCache();
+            }
+        } finally {
+            CURRENT.set(previous);
+        }
+        result.trim();
+        return result;
     }
 
     /**
@@ -121,16 +522,24 @@ public class Mapper {
      * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
      */
     public Map<String, Field> getMappedDestinationProperties(Class<?> sourceClass, Class<?> destinationClass, Class<?>... groups) {
-        Map<String, Field> result = new HashMap<>();
-        Class<?> superClass = sourceClass.getSuperclass();
-        if (superClass != null) {
-            result.putAll(getMappedDestinationProperties(superClass, destinationClass));
-        }
-        for (Field field : destinationClass.getDeclaredFields()) {
-            getAnnotation(sourceClass, destinationClass, field, groups)
-                .ifPresent(a -> result.put(field.getName(), field));
+        return plan(sourceClass, destinationClass, groups).destinationProperties();
+    }
+
+    /**
+     * Explains how objects of {@code sourceClass} would be mapped to {@code destinationClass}: for every destination field that will be mapped,
+     * where the value comes from, how it is obtained, and which conversions may be applied.
+     * @param sourceClass Class of a source object
+     * @param destinationClass Class of a destination object
+     * @param groups If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
+     * @since 0.7
+     */
+    public Explanation explain(Class<?> sourceClass, Class<?> destinationClass, Class<?>... groups) {
+        final MappingPlan plan = plan(sourceClass, destinationClass, groups);
+        final List<Explanation.FieldExplanation> fields = new ArrayList<>();
+        for (MappingPlan.Step step : plan.steps()) {
+            fields.add(_explain(step, sourceClass, destinationClass));
         }
-        return Collections.unmodifiableMap(result);
+        return new Explanation(sourceClass, destinationClass, Collections.unmodifiableList(fields));
     }
 
     /**
@@ -142,9 +551,8 @@ public class Mapper {
      * @param groups           If not empty, only mapping is done if one (or more) of the given groups matches one of the groups of the source annotations.
      */
     public Optional<Function<Object, Optional<Object>>> sourceGetter(Class<?> sourceClass, Field destinationField, Class<?> destinationClass, Class<?>... groups) {
-        Map<Class<?>, Optional<Function<Object, Optional<Object>>>> c = GETTER_CACHE.computeIfAbsent(destinationField, (fi) -> new ConcurrentHashMap<>());
-        return c.computeIfAbsent(sourceClass, cl -> _sourceGetter(destinationClass, destinationField, sourceClass));
-
+        return sourceGetter(sourceClass, destinationField, destinationClass, Groups.requested(groups))
+            .map(g -> source -> Optional.ofNullable(g.get(source)));
     }
 
 
@@ -208,131 +616,488 @@ public class Mapper {
     ///  PRIVATE METHODS
 
     /**
-     * Helper method for {@link #map(Object, Object, Class...)}, recursively called for the class and superclass of the destination
-     * object.
+     * Helper method for {@link #map(Object, Object, Class...)}. Executes the {@link #plan(Class, Class, Class[]) plan} for the class of the source
+     * and destination.
      */
-    private void privateMap(Object source, Object destination, Class<?> forClass, Class<?>... groups) {
-        Class<?> sourceClass = source.getClass();
-        Class<?> superClass = forClass.getSuperclass();
-        if (superClass != null) {
-            privateMap(source, destination, superClass, groups);
+    private void privateMap(Object source, Object destination, Class<?> destinationClass, FieldMask mask, Class<?>... groups) {
+        MappingPlan plan = plan(source.getClass(), destinationClass, groups);
+        if (mask != null) {
+            plan = plan.restrict(mask.compile(destinationClass));
+        }
+        if (budget.maxTime() != null) {
+            MappingContext.checkTime();
+        }
+        if (sampler != null && sampler.sample()) {
+            sampledMap(plan, source, destination);
+            return;
         }
-        for (Field f: forClass.getDeclaredFields()) {
-            getAndSet(f, sourceClass, source, destination, groups);
+        if (expensiveFields != null && concurrentMap(plan, source, destination)) {
+            return;
+        }
+        // This is the hot path, so this avoids everything that allocates (iterators, optionals, boxing, logging with varargs)
+        final MappingPlan.Step[] steps = plan.stepArray();
+        for (int i = 0; i < steps.length; i++) {
+            execute(plan, steps[i], source, destination);
+        }
+    }
+
+    /**
+     * As the loop in {@link #privateMap(Object, Object, Class, FieldMask, Class[])}, but measures the time per step, and offers the result to the {@link #sampler()}.
+     * The time to parse a json blob is attributed to the first field that needs it.
+     */
+    private void sampledMap(MappingPlan plan, Object source, Object destination) {
+        final MappingPlan.Step[] steps = plan.stepArray();
+        final List<MappingSampler.FieldTiming> timings = new ArrayList<>(steps.length);
+        final long start = System.nanoTime();
+        for (int i = 0; i < steps.length; i++) {
+            final long stepStart = System.nanoTime();
+            execute(plan, steps[i], source, destination);
+            final long nanos = System.nanoTime() - stepStart;
+            plan.sampled(i, nanos);
+            timings.add(new MappingSampler.FieldTiming(steps[i].destinationField().getName(), Duration.ofNanos(nanos)));
         }
+        sampler.report(plan.sourceClass(), plan.destinationClass(), System.nanoTime() - start, Collections.unmodifiableList(timings));
     }
 
+    private static final Future<JsonNode> NO_JSON = CompletableFuture.completedFuture(null);
 
     /**
-     * For a field in the destination object, try to get value from the source, and set
-     * this value in destination. Or do nohting if there is no match found
+     * As the loop in {@link #privateMap(Object, Object, Class, FieldMask, Class[])}, but the json pointers and json paths of {@link ExpensiveFields expensive} steps are
+     * evaluated on an executor, while the other steps are executed. Json is parsed on the calling thread before, and the results are decoded and written on
+     * the calling thread afterwards (so, after the other steps).
+     * @return Whether the plan has expensive steps. If not, nothing was done.
      */
-    private void getAndSet(
-        Field destinationField,
-        Class<?> sourceClass,
-        Object source,
-        Object destination,
-        Class<?>... groups) {
-        Optional<Function<Object, Optional<Object>>> getter = sourceGetter(sourceClass, destinationField, destination.getClass(), groups);
+    private boolean concurrentMap(MappingPlan plan, Object source, Object destination) {
+        final MappingPlan.Step[] steps = plan.stepArray();
+        final long threshold = expensiveFields.threshold() == null ? Long.MAX_VALUE : expensiveFields.threshold().toNanos();
+        Future<?>[] evaluations = null;
+        for (int i = 0; i < steps.length; i++) {
+            final MappingPlan.JsonEvaluation json = steps[i].json();
+            if (json != null && (steps[i].expensive() || plan.sampledNanos(i) > threshold)) {
+                if (evaluations == null) {
+                    evaluations = new Future<?>[steps.length];
+                }
+                final JsonNode tree = (JsonNode) json.tree().get(source);
+                evaluations[i] = tree == null ? NO_JSON : CompletableFuture.supplyAsync(() -> {
+                    final Mapper previous = CURRENT.get();
+                    try {
+                        CURRENT.set(this);
+                        return json.evaluate().apply(tree);
+                    } finally {
+                        CURRENT.set(previous);
+                    }
+                }, expensiveFields.executor());
+            }
+        }
+        if (evaluations == null) {
+            return false;
+        }
+        try {
+            for (int i = 0; i < steps.length; i++) {
+                if (evaluations[i] == null) {
+                    execute(plan, steps[i], source, destination);
+                }
+            }
+            for (int i = 0; i < steps.length; i++) {
+                if (evaluations[i] != null) {
+                    final Object value = steps[i].json().decode().apply((JsonNode) await(evaluations[i], steps[i]));
+                    if (value != null) {
+                        steps[i].setter().accept(destination, value);
+                    }
+                }
+            }
+        } finally {
+            for (Future<?> evaluation : evaluations) {
+                if (evaluation != null) {
+                    // only has effect if something went wrong
+                    evaluation.cancel(false);
+                }
+            }
+        }
+        return true;
+    }
 
-        if (getter.isPresent()) {
-            Optional<Object> value = getter.get().apply(source);
-            value.ifPresentOrElse(v ->
-                    destinationSetter(destination.getClass(), destinationField, sourceClass).accept(destination, v),
-                () -> log.debug("No field found for {} ({}) {}", destinationField.getName(), getAllSourceAnnotations(destinationField), sourceClass));
-        } else {
-            log.debug("Ignored destination field {} (No (matching) @Source annotation for {})", destinationField, sourceClass);
+    private static Object await(Future<?> evaluation, MappingPlan.Step step) {
+        try {
+            return evaluation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MapException("Interrupted while evaluating " + step.destinationField());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new MapException("When evaluating " + step.destinationField() + ": " + e.getCause());
         }
     }
 
+    private void execute(MappingPlan plan, MappingPlan.Step step, Object source, Object destination) {
+        if (step.copier() != null) {
+            try {
+                step.copier().copy(source, destination);
+            } catch (Exception e) {
+                log.warn("When copying {}: {}", step.destinationField(), e.getMessage());
+            }
+            return;
+        }
+        final Object value = step.getter().get(source);
+        if (value != null) {
+            step.setter().accept(destination, value);
+        } else if (log.isDebugEnabled()) {
+            log.debug("No field found for {} ({}) {}", step.destinationField().getName(), step.source(), plan.sourceClass());
+        }
+    }
 
-    private final Map<Field, Map<Class<?>, Optional<Function<Object, Optional<Object>>>>> GETTER_CACHE = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Map<Class<?>, Map<Long, MappingPlan>>> PLAN_CACHE = new ConcurrentHashMap<>();
 
+    private final DerivedObjectMappers derivedObjectMappers = new DerivedObjectMappers();
 
+    /**
+     * What is derived from the {@link #objectMapper()} of this mapper, created lazily. This is used by the implementation, and not meant to be called directly.
+     * @since 0.7
+     */
+    public DerivedObjectMappers derivedObjectMappers() {
+        return derivedObjectMappers;
+    }
 
     /**
-     * Uncached version of {@link #sourceGetter(Class, Field, Class, Class[])}
+     * Returns the (cached) plan to map objects of {@code sourceClass} to {@code destinationClass}, for the given groups.
+     * <p>
+     * A plain {@link Map#get(Object) get} is tried first, because {@link Map#computeIfAbsent(Object, Function) computeIfAbsent} would need a capturing lambda (an allocation) for every call.
      */
-    private Optional<Function<Object, Optional<Object>>> _sourceGetter(Class<?> destinationClass, Field destinationField, Class<?> sourceClass, Class<?>... groups) {
-        Optional<EffectiveSource> annotation = getAnnotation(sourceClass, destinationClass, destinationField, groups);
-        if (annotation.isPresent()) {
-            final EffectiveSource s = annotation.get();
-            String sourceFieldName = s.field();
-            if (isJsonField(sourceClass)) {
-              return Optional.of(JsonUtil.valueFromJsonGetter(s));
-            }
-            if (UNSET.equals(sourceFieldName)) {
-                sourceFieldName = destinationField.getName();
-            }
-            Optional<Field> sourceField = getSourceField(sourceClass, sourceFieldName);
-            if (sourceField.isPresent()) {
-                final Field sf = sourceField.get();
-
-                if (UNSET.equals(s.jsonPointer()) && UNSET.equals(s.jsonPath())) {
-                    return Optional.of(source -> getSourceValue(source, sf, s.path()));
-                } else {
-                    return Optional.of(source -> JsonUtil.getSourceJsonValue(s, source, sf, destinationField));
+    private MappingPlan plan(Class<?> sourceClass, Class<?> destinationClass, Class<?>... groups) {
+        final long requestedGroups = Groups.requested(groups);
+        Map<Long, MappingPlan> c = PLAN_CACHE
+            .computeIfAbsent(destinationClass, dc -> new ConcurrentHashMap<>())
+            .computeIfAbsent(sourceClass, sc -> new ConcurrentHashMap<>());
+        // Long.valueOf is cached for 0 (no groups), which is the common case
+        MappingPlan plan = c.get(requestedGroups);
+        if (plan == null) {
+            plan = c.computeIfAbsent(requestedGroups, g -> _plan(sourceClass, destinationClass, g));
+        }
+        return plan;
+    }
+
+    /**
+     * Uncached version of {@link #plan(Class, Class, Class[])}
+     */
+    private MappingPlan _plan(Class<?> sourceClass, Class<?> destinationClass, long requestedGroups) {
+        List<MappingPlan.Step> steps = new ArrayList<>();
+        List<Field> fields = destinationFields(destinationClass);
+        for (int i = 0; i < fields.size(); i++) {
+            final Field destinationField = fields.get(i);
+            Optional<EffectiveSource> annotation = getAnnotation(sourceClass, destinationClass, destinationField, requestedGroups);
+            Optional<MappingPlan.ValueGetter> getter = annotation.flatMap(s -> _sourceGetter(s, destinationField, sourceClass));
+            if (getter.isPresent()) {
+                final FieldWriter writer = FieldWriter.of(destinationClass, destinationField, writesViaSetters);
+                if (writer == null) {
+                    // already warned about
+                    continue;
                 }
+                steps.add(new MappingPlan.Step(i, destinationField, annotation.get(),
+                    getter.get(),
+                    _destinationSetter(annotation.get(), destinationClass, destinationField, sourceClass, writer),
+                    _copier(annotation.get(), destinationField, sourceClass, writer),
+                    expensiveFields == null ? null : _jsonEvaluation(annotation.get(), destinationField, sourceClass),
+                    destinationField.isAnnotationPresent(Expensive.class)
+                ));
+            } else {
+                log.debug("Ignored destination field {} (No (matching) @Source annotation for {})", destinationField, sourceClass);
             }
         }
-        return Optional.empty();
+        return new MappingPlan(sourceClass, destinationClass, steps);
     }
 
-    private final Map<Class<?>, Map<Field, Map<Class<?>, BiConsumer<Object, Object>>>> SETTER_CACHE = new ConcurrentHashMap<>();
+
+    private final Map<Field, Map<Class<?>, Map<Long, Optional<MappingPlan.ValueGetter>>>> GETTER_CACHE = new ConcurrentHashMap<>();
+
+    private Optional<MappingPlan.ValueGetter> sourceGetter(Class<?> sourceClass, Field destinationField, Class<?> destinationClass, long requestedGroups) {
+        Map<Long, Optional<MappingPlan.ValueGetter>> c = GETTER_CACHE
+            .computeIfAbsent(destinationField, (fi) -> new ConcurrentHashMap<>())
+            .computeIfAbsent(sourceClass, (sc) -> new ConcurrentHashMap<>());
+        return c.computeIfAbsent(requestedGroups, g -> getAnnotation(sourceClass, destinationClass, destinationField, g)
+            .flatMap(s -> _sourceGetter(s, destinationField, sourceClass)));
+    }
 
     /**
-     * Returns a BiConsumer, that for a certain {@code destinationField} consumes a destination object, and sets a value
-     * for the given field.
-     * @param destinationField The field to set
-     * @param sourceClass The currently matched class of the source object
+     * Uncached version of {@link #sourceGetter(Class, Field, Class, Class[])}
+     * @param s The annotation that matched the destination field
      */
-    private  BiConsumer<Object, Object> destinationSetter(Class<?> destinationClass, Field destinationField, Class<?> sourceClass) {
-        Map<Field, Map<Class<?>, BiConsumer<Object, Object>>> classCache = SETTER_CACHE.computeIfAbsent(destinationClass, fi -> new ConcurrentHashMap<>());
-        Map<Class<?>, BiConsumer<Object, Object>> cache = classCache.computeIfAbsent(destinationField, fi -> new ConcurrentHashMap<>());
-        return cache.computeIfAbsent(sourceClass, c -> _destinationSetter(destinationClass, destinationField, c));
+    private Optional<MappingPlan.ValueGetter> _sourceGetter(EffectiveSource s, Field destinationField, Class<?> sourceClass) {
+        String sourceFieldName = s.field();
+        if (isJsonField(sourceClass)) {
+            final ObjectReader reader = JsonUtil.reader(this, destinationField);
+            final Function<Object, Optional<Object>> json = JsonUtil.valueFromJsonGetter(s, reader);
+            return Optional.of(source -> json.apply(source).orElse(null));
+        }
+        if (UNSET.equals(sourceFieldName)) {
+            sourceFieldName = destinationField.getName();
+        }
+        final PathAccessor path = PathAccessor.of(s.path());
+        if (SourceAdapters.isAdapted(sourceClass)) {
+            return SourceAdapters.getter(sourceClass, sourceFieldName)
+                .map(getter -> {
+                    if (UNSET.equals(s.jsonPointer()) && UNSET.equals(s.jsonPath())) {
+                        return source -> path.followValue(getter.apply(source));
+                    } else {
+                        final ObjectReader reader = JsonUtil.reader(this, destinationField);
+                        return source -> JsonUtil.getSourceJsonValueFromBlob(s, source, path.followValue(getter.apply(source)), null, destinationField, reader).orElse(null);
+                    }
+                });
+        }
+        Optional<Field> sourceField = getSourceField(sourceClass, sourceFieldName);
+        if (sourceField.isPresent()) {
+            final Field sf = sourceField.get();
+
+            if (UNSET.equals(s.jsonPointer()) && UNSET.equals(s.jsonPath())) {
+                return Optional.of(source -> path.value(source, sf));
+            } else {
+                final ObjectReader reader = JsonUtil.reader(this, destinationField);
+                return Optional.of(source -> JsonUtil.getSourceJsonValue(s, path, source, sf, destinationField, reader).orElse(null));
+            }
+        }
+        return Optional.empty();
     }
 
     /**
-     * Uncached version of {@link #destinationSetter(Class, Field, Class)}
+     * The getter of {@link #_sourceGetter(EffectiveSource, Field, Class)} split up, if it evaluates a json pointer or json path on a field of the source.
+     * @return The split up getter, or {@code null}
      */
-    private  BiConsumer<Object, Object> _destinationSetter(Class<?> destinationClass, Field destinationField, Class<?> sourceClass) {
-        Optional<EffectiveSource> annotation = getAnnotation(sourceClass, destinationClass, destinationField);
-        if (annotation.isPresent()) {
-            EffectiveSource effectiveSource = annotation.get();
-            String sourceFieldName = effectiveSource.field();
-            if (isJsonField(sourceClass)) {
-                destinationField.setAccessible(true);
-                return (destination, o) -> {
-                    try {
-                        destinationField.set(destination, ValueMapper.valueFor(this, destinationField, destinationClass,o));
-                    } catch (Exception e) {
-                        log.warn("When setting {} in {}: {}", o, destinationField, e.getMessage());
-                    }
-                };
+    private MappingPlan.JsonEvaluation _jsonEvaluation(EffectiveSource s, Field destinationField, Class<?> sourceClass) {
+        if (isJsonField(sourceClass) || SourceAdapters.isAdapted(sourceClass) || (UNSET.equals(s.jsonPointer()) && UNSET.equals(s.jsonPath()))) {
+            return null;
+        }
+        final String sourceFieldName = UNSET.equals(s.field()) ? destinationField.getName() : s.field();
+        return getSourceField(sourceClass, sourceFieldName)
+            .map(sf -> JsonUtil.evaluation(s, PathAccessor.of(s.path()), sf, destinationField, JsonUtil.reader(this, destinationField)))
+            .orElse(null);
+    }
+
+    /**
+     * Helper for {@link #explain(Class, Class, Class[])}. Mirrors the decisions of {@link #_sourceGetter(EffectiveSource, Field, Class)} and {@link #_destinationSetter(EffectiveSource, Class, Field, Class, FieldWriter)}.
+     */
+    private Explanation.FieldExplanation _explain(MappingPlan.Step step, Class<?> sourceClass, Class<?> destinationClass) {
+        final EffectiveSource s = step.source();
+        final Field destinationField = step.destinationField();
+        final boolean json = isJsonField(sourceClass);
+        final String sourceFieldName = UNSET.equals(s.field()) ? (json ? null : destinationField.getName()) : s.field();
+        final boolean hasExpression = !UNSET.equals(s.jsonPointer()) || !UNSET.equals(s.jsonPath());
+        final Explanation.Access access;
+        if (step.copier() != null) {
+            access = Explanation.Access.DIRECT_COPY;
+        } else if (json) {
+            access = Explanation.Access.JSON;
+        } else if (!UNSET.equals(s.jsonPath())) {
+            access = Explanation.Access.JSON_PATH;
+        } else if (!UNSET.equals(s.jsonPointer())) {
+            access = Explanation.Access.JSON_POINTER;
+        } else if (SourceAdapters.isAdapted(sourceClass)) {
+            access = Explanation.Access.ADAPTER;
+        } else if (s.path().length > 0) {
+            access = Explanation.Access.PATH;
+        } else {
+            access = Explanation.Access.FIELD;
+        }
+        final List<String> conversions = new ArrayList<>();
+        if (step.copier() == null) {
+            final Class<?> type = destinationField.getType();
+            final boolean decoded = (json || hasExpression) && JsonUtil.reader(this, destinationField) != null;
+            if (step.json() != null && step.expensive()) {
+                conversions.add("evaluate concurrently");
             }
-            if (UNSET.equals(sourceFieldName)) {
-                sourceFieldName = destinationField.getName();
+            if (decoded) {
+                conversions.add("decode json as " + destinationField.getGenericType().getTypeName());
+            } else if (json || hasExpression) {
+                conversions.add("unwrap json");
             }
-            Optional<Field> sourceField = getSourceField(sourceClass, sourceFieldName);
-            if (sourceField.isPresent()) {
-                destinationField.setAccessible(true);
-                return (destination, o) -> {
-                    try {
-                        Object convertedValue = ValueMapper.valueFor(this, destinationField, destinationField.getType(), o);
-                        destinationField.set(destination, convertedValue);
-                    } catch (Exception e) {
-                        log.warn("When setting '{}' in {}: {}", o, destinationField, e.getMessage());
-                    }
-                };
+            final XmlAdapters.Adapter xmlAdapter = supportsJaxbAnnotations ? XmlAdapters.forField(destinationField) : null;
+            if (xmlAdapter != null) {
+                conversions.add("xml adapter " + xmlAdapter.adapterClass().getSimpleName());
+            }
+            if (type.isEnum()) {
+                conversions.add(supportsJaxbAnnotations ? "enum by xml value or name" : "enum by name");
+            }
+            final Class<?> customMapped = json ? destinationClass : type;
+            if (customMappers.containsKey(customMapped)) {
+                conversions.add("custom mappers (" + customMappers.get(customMapped).size() + ")");
+            }
+            final Containers.Container container = Containers.forField(destinationField);
+            if (decoded) {
+                // jackson does it all
+            } else if (container != null && container.elementType() != Object.class && (hasExpression || container.mappableElements())) {
+                conversions.add("sub map elements to " + container.elementType().getSimpleName());
+            } else if (!json && isMappable(type)) {
+                conversions.add("sub map to " + type.getSimpleName());
+            }
+            if (stringPool(destinationField) != null) {
+                conversions.add("deduplicate");
+            }
+            final FieldWriter writer = FieldWriter.of(destinationClass, destinationField, writesViaSetters);
+            if (!writer.isDirect()) {
+                conversions.add("write via " + writer);
             }
         }
-        return (d, v) -> {};
+        final String blob = hasExpression && !json ? String.join(".", concat(sourceFieldName, s.path())) : null;
+        return new Explanation.FieldExplanation(
+            destinationField.getName(),
+            s.sourceClass(),
+            sourceFieldName,
+            List.of(s.path()),
+            access,
+            !UNSET.equals(s.jsonPath()) ? s.jsonPath() : !UNSET.equals(s.jsonPointer()) ? s.jsonPointer() : null,
+            Collections.unmodifiableList(conversions),
+            blob,
+            builtClass(destinationClass) != null
+        );
     }
 
+    private static List<String> concat(String first, String[] rest) {
+        final List<String> result = new ArrayList<>();
+        result.add(first);
+        result.addAll(Arrays.asList(rest));
+        return result;
+    }
 
+    /**
+     * Returns a BiConsumer, that for a certain {@code destinationField} consumes a destination object, and sets a value
+     * for the given field.
+     * @param effectiveSource The annotation that matched the destination field
+     * @param destinationField The field to set
+     * @param sourceClass The currently matched class of the source object
+     * @param writer How to write the destination field
+     */
+    private  BiConsumer<Object, Object> _destinationSetter(EffectiveSource effectiveSource, Class<?> destinationClass, Field destinationField, Class<?> sourceClass, FieldWriter writer) {
+        final StringPool pool = stringPool(destinationField);
+        final XmlAdapters.Adapter xmlAdapter = supportsJaxbAnnotations ? XmlAdapters.forField(destinationField) : null;
+        final Containers.Container container = Containers.forField(destinationField);
+        final boolean refillable = container != null && container.kind() != Containers.Kind.ARRAY && writer.isDirect();
+        if (isJsonField(sourceClass)) {
+            return (destination, o) -> {
+                try {
+                    Object convertedValue = ValueMapper.valueFor(this, destinationField, destinationClass, o, xmlAdapter);
+                    if (refillable && MappingContext.reusing()) {
+                        if (ValueMapper.refill(this, convertedValue, destination, destinationField, container)) {
+                            return;
+                        }
+                        convertedValue = ValueMapper.adopt(this, convertedValue, destinationField, container);
+                    }
+                    if (pool != null && convertedValue instanceof String string) {
+                        convertedValue = pool.intern(string);
+                    }
+                    if (!writer.isDirect()) {
+                        // the method may look at the value, so sub mapped objects must be complete
+                        MappingContext.drainCurrent();
+                    }
+                    writer.write(destination, convertedValue);
+                } catch (BudgetExceededException bee) {
+                    throw bee;
+                } catch (Exception e) {
+                    log.warn("When setting {} in {}: {}", o, destinationField, e.getMessage());
+                }
+            };
+        }
+        return (destination, o) -> {
+            try {
+                Object convertedValue = ValueMapper.valueFor(this, destinationField, destinationField.getType(), o, xmlAdapter);
+                if (refillable && MappingContext.reusing()) {
+                    if (ValueMapper.refill(this, convertedValue, destination, destinationField, container)) {
+                        return;
+                    }
+                    convertedValue = ValueMapper.adopt(this, convertedValue, destinationField, container);
+                }
+                convertedValue = ValueMapper.subMapIfNeeded(this, convertedValue, destinationField, container);
+                if (pool != null && convertedValue instanceof String string) {
+                    convertedValue = pool.intern(string);
+                }
+                if (!writer.isDirect()) {
+                    MappingContext.drainCurrent();
+                }
+                writer.write(destination, convertedValue);
+            } catch (BudgetExceededException bee) {
+                throw bee;
+            } catch (Exception e) {
+                log.warn("When setting '{}' in {}: {}", o, destinationField, e.getMessage());
+            }
+        };
+    }
 
+    /**
+     * @return The {@link StringPool} to use for values of {@code destinationField}, or {@code null} if they need not be deduplicated.
+     */
+    private StringPool stringPool(Field destinationField) {
+        if (destinationField.getType() != String.class) {
+            return null;
+        }
+        if (stringPool != null) {
+            return stringPool;
+        }
+        final Field annotated = associatedBuilderField(destinationField).orElse(destinationField);
+        return annotated.isAnnotationPresent(Deduplicate.class) ? StringPool.DEFAULT : null;
+    }
 
-
-
-
+    /**
+     * Returns a {@link MappingPlan.Copier} if the value of the source field can just be copied to the destination field. That is the case if
+     * it is a plain field (no path, no json) of exactly the same (generic) type, and no conversions (xml adapters, custom mappers, sub mapping) apply. Primitive values
+     * are then copied without boxing.
+     * @return The copier, or {@code null} if the value must be obtained and set via the getter and setter.
+     */
+    private MappingPlan.Copier _copier(EffectiveSource effectiveSource, Field destinationField, Class<?> sourceClass, FieldWriter writer) {
+        if (isJsonField(sourceClass)
+            || SourceAdapters.isAdapted(sourceClass)
+            || effectiveSource.path().length > 0
+            || !UNSET.equals(effectiveSource.jsonPointer())
+            || !UNSET.equals(effectiveSource.jsonPath())) {
+            return null;
+        }
+        final Class<?> type = destinationField.getType();
+        if (customMappers.containsKey(type)) {
+            return null;
+        }
+        if (Containers.forField(destinationField) != null || isMappable(type)) {
+            // elements or the object itself may need sub mapping
+            return null;
+        }
+        if (supportsJaxbAnnotations && XmlAdapters.forField(destinationField) != null) {
+            return null;
+        }
+        if (stringPool(destinationField) != null) {
+            return null;
+        }
+        if (!writer.isDirect()) {
+            return null;
+        }
+        final String sourceFieldName = UNSET.equals(effectiveSource.field()) ? destinationField.getName() : effectiveSource.field();
+        final Field sf = getSourceField(sourceClass, sourceFieldName).orElse(null);
+        if (sf == null || sf.getType() != type || !sf.getGenericType().equals(destinationField.getGenericType())) {
+            return null;
+        }
+        destinationField.setAccessible(true);
+        if (type == int.class) {
+            return (source, destination) -> destinationField.setInt(destination, sf.getInt(source));
+        } else if (type == long.class) {
+            return (source, destination) -> destinationField.setLong(destination, sf.getLong(source));
+        } else if (type == double.class) {
+            return (source, destination) -> destinationField.setDouble(destination, sf.getDouble(source));
+        } else if (type == float.class) {
+            return (source, destination) -> destinationField.setFloat(destination, sf.getFloat(source));
+        } else if (type == boolean.class) {
+            return (source, destination) -> destinationField.setBoolean(destination, sf.getBoolean(source));
+        } else if (type == short.class) {
+            return (source, destination) -> destinationField.setShort(destination, sf.getShort(source));
+        } else if (type == byte.class) {
+            return (source, destination) -> destinationField.setByte(destination, sf.getByte(source));
+        } else if (type == char.class) {
+            return (source, destination) -> destinationField.setChar(destination, sf.getChar(source));
+        } else {
+            return (source, destination) -> {
+                final Object value = sf.get(source);
+                if (value != null) {
+                    destinationField.set(destination, value);
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import lombok.With;
+
+import java.time.Duration;
+
+/**
+ * Limits on the resources one call to a {@link Mapper} may use for json sourced values, so that one malformed or gigantic json blob can't stall a
+ * worker, or exhaust the heap. See {@link Mapper#withBudget(MappingBudget)}. If a budget is exceeded, the mapping stops with a {@link BudgetExceededException}.
+ * <pre>{@code
+ * Mapper mapper = MAPPER.withBudget(MappingBudget.UNLIMITED.withMaxBlobBytes(1_000_000).withMaxTime(Duration.ofMillis(100)));
+ * }</pre>
+ *
+ * @param maxBlobBytes The maximal size of one json blob. For textual blobs given as {@link CharSequence}s, this is the number of characters.
+ * @param maxDepth The maximal nesting depth of one json blob
+ * @param maxJsonPathResults The maximal number of values one {@link org.meeuw.mapping.annotations.Source#jsonPath() json path} may produce
+ * @param maxTime The maximal wall time of one (top level) mapping, or {@code null}. This is checked before every (sub) object is mapped.
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@With
+public record MappingBudget(
+    long maxBlobBytes,
+    int maxDepth,
+    int maxJsonPathResults,
+    Duration maxTime) {
+
+    /**
+     * No limits (besides the default constraints of jackson itself). The default for every {@link Mapper}.
+     */
+    public static final MappingBudget UNLIMITED = new MappingBudget(Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, null);
+
+    /**
+     * @return Whether the parser needs to be constrained for this budget
+     */
+    public boolean constrainsParsing() {
+        return maxBlobBytes != Long.MAX_VALUE || maxDepth != Integer.MAX_VALUE;
+    }
+}
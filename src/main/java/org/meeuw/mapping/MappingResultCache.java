@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.meeuw.mapping.annotations.Versioned;
+import org.meeuw.mapping.impl.Util;
+
+/**
+ * A cache for complete mapping results of source objects of classes annotated with {@link Versioned}. Such objects are only mapped
+ * again if their version changed. See {@link Mapper#withResultCache(MappingResultCache)}.
+ * <p>
+ * The results are shared, so they should not be modified. Since the results depend on the configuration of the mapper, a cache should
+ * not be shared between differently configured mappers.
+ * <p>
+ * By default, the results are kept on the heap, in a {@link LruStore} of limited size. Other {@link Store}s can be plugged in.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public class MappingResultCache {
+
+    private static final Field[] UNVERSIONED = new Field[0];
+
+    private static final ClassValue<Field[]> VERSION_FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> sourceClass) {
+            final Versioned versioned = sourceClass.getAnnotation(Versioned.class);
+            if (versioned == null) {
+                return UNVERSIONED;
+            }
+            final Field id = Util.getSourceField(sourceClass, versioned.id()).orElse(null);
+            final Field version = Util.getSourceField(sourceClass, versioned.version()).orElse(null);
+            if (id == null || version == null) {
+                log.warn("{} is @Versioned, but has no fields {} and {}", sourceClass, versioned.id(), versioned.version());
+                return UNVERSIONED;
+            }
+            return new Field[] {id, version};
+        }
+    };
+
+    private final Store store;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param store Where to store the results
+     */
+    public MappingResultCache(Store store) {
+        this.store = store;
+    }
+
+    /**
+     * @param maxSize The maximal number of results to keep on the heap. The least recently used ones are evicted.
+     */
+    public MappingResultCache(int maxSize) {
+        this(new LruStore(maxSize));
+    }
+
+    /**
+     * @return The key for the result of mapping {@code source}, or {@code null} if it can't be cached (it is not {@link Versioned}, or has no version)
+     */
+    Key key(Object source, Class<?> destinationClass, long groups) {
+        final Field[] fields = VERSION_FIELDS.get(source.getClass());
+        if (fields.length == 0) {
+            return null;
+        }
+        try {
+            final Object id = fields[0].get(source);
+            final Object version = fields[1].get(source);
+            if (id == null || version == null) {
+                return null;
+            }
+            return new Key(source.getClass(), id, version, destinationClass, groups);
+        } catch (IllegalAccessException e) {
+            log.warn(e.getMessage());
+            return null;
+        }
+    }
+
+    Object get(Key key) {
+        final Object result = store.get(key);
+        if (result == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return result;
+    }
+
+    void put(Key key, Object result) {
+        store.put(key, result);
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public void clear() {
+        store.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "MappingResultCache{size=" + size() + ", hits=" + hits() + ", misses=" + misses() + "}";
+    }
+
+    /**
+     * @param sourceClass The class of the source object, since different classes may use the same ids
+     * @param id The value of the {@link Versioned#id()} field
+     * @param version The value of the {@link Versioned#version()} field
+     * @param destinationClass The class that was mapped to
+     * @param groups A bitmask representing the groups that were requested. {@code 0} for none.
+     */
+    public record Key(Class<?> sourceClass, Object id, Object version, Class<?> destinationClass, long groups) {
+    }
+
+    /**
+     * Where a {@link MappingResultCache} stores its results. Implementations must be thread safe.
+     */
+    public interface Store {
+
+        /**
+         * @return The stored result, or {@code null}
+         */
+        Object get(Key key);
+
+        void put(Key key, Object result);
+
+        int size();
+
+        void clear();
+    }
+
+    /**
+     * A {@link Store} on the heap, with a maximal size. The least recently used results are evicted first.
+     */
+    public static class LruStore implements Store {
+        private final Map<Key, Object> map;
+
+        public LruStore(int maxSize) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        @Override
+        public synchronized Object get(Key key) {
+            return map.get(key);
+        }
+
+        @Override
+        public synchronized void put(Key key, Object result) {
+            map.put(key, result);
+        }
+
+        @Override
+        public synchronized int size() {
+            return map.size();
+        }
+
+        @Override
+        public synchronized void clear() {
+            map.clear();
+        }
+    }
+}
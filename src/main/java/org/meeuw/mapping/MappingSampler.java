@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Measures the time spent per destination field for a fraction of the mappings, and reports the ones that took longer than a threshold. This
+ * makes it possible to find out which annotations are responsible for slow mappings. See {@link Mapper#withSampler(MappingSampler)}.
+ * <p>
+ * By default, slow mappings are logged (with level INFO).
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public final class MappingSampler {
+
+    @Getter
+    private final double fraction;
+    @Getter
+    private final Duration threshold;
+    private final long thresholdNanos;
+    @Getter
+    private final Consumer<Sample> reporter;
+
+    /**
+     * @param fraction The fraction of the mappings to measure (between 0 and 1)
+     * @param threshold Only mappings that took longer than this are reported
+     * @param reporter Receives the slow mappings
+     */
+    public MappingSampler(double fraction, Duration threshold, Consumer<Sample> reporter) {
+        this.fraction = fraction;
+        this.threshold = threshold;
+        this.thresholdNanos = threshold.toNanos();
+        this.reporter = reporter;
+    }
+
+    /**
+     * @param fraction The fraction of the mappings to measure (between 0 and 1)
+     * @param threshold Only mappings that took longer than this are logged
+     */
+    public MappingSampler(double fraction, Duration threshold) {
+        this(fraction, threshold, s -> log.info("Slow mapping {}", s));
+    }
+
+    /**
+     * @return Whether the current mapping should be measured
+     */
+    boolean sample() {
+        return fraction >= 1 || ThreadLocalRandom.current().nextDouble() < fraction;
+    }
+
+    void report(Class<?> sourceClass, Class<?> destinationClass, long totalNanos, List<FieldTiming> fields) {
+        if (totalNanos >= thresholdNanos) {
+            reporter.accept(new Sample(sourceClass, destinationClass, Duration.ofNanos(totalNanos), fields));
+        }
+    }
+
+    /**
+     * @param sourceClass The class of the source object
+     * @param destinationClass The class of the destination object
+     * @param total The time the complete mapping took
+     * @param fields The time per destination field, in the order they were mapped
+     */
+    public record Sample(Class<?> sourceClass, Class<?> destinationClass, Duration total, List<FieldTiming> fields) {
+
+        /**
+         * @return The fields, the slowest first
+         */
+        public List<FieldTiming> slowest() {
+            List<FieldTiming> result = new ArrayList<>(fields);
+            result.sort(Comparator.comparing(FieldTiming::duration).reversed());
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return sourceClass.getSimpleName() + " -> " + destinationClass.getSimpleName() + " " + total.toNanos() / 1000 + " µs: " + slowest();
+        }
+    }
+
+    /**
+     * @param field The name of the destination field
+     * @param duration The time it took to obtain, convert and set the value
+     */
+    public record FieldTiming(String field, Duration duration) {
+        @Override
+        public String toString() {
+            return field + "=" + duration.toNanos() / 1000 + " µs";
+        }
+    }
+}
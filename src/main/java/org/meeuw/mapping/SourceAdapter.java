@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+
+import org.meeuw.mapping.annotations.Source;
+
+/**
+ * Service provider interface for source objects that are not plain java objects, i.e. of which the values are not read from fields. The name of a value is
+ * what {@link Source#field()} (or the name of the destination field) refers to.
+ * <p>
+ * Implementations are found with {@link ServiceLoader}, and take precedence over the built-in ones, which support {@link java.util.Map maps} (with string keys),
+ * {@link java.sql.ResultSet result sets} (see also {@link Mapper#mapResultSet(java.sql.ResultSet, Class, Class[])}) and {@link Record records} (via their accessor methods).
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public interface SourceAdapter {
+
+    /**
+     * @param sourceClass The class of a source object
+     * @return Whether this adapter reads the values from source objects of this class
+     */
+    boolean supports(Class<?> sourceClass);
+
+    /**
+     * Called once per source class and name, so implementations can do the lookups they need beforehand.
+     * @param sourceClass A class for which this adapter {@link #supports(Class)}
+     * @param name The name of the value
+     * @return A function to get the value from a source object, which returns {@code null} if it has no value. Empty if no object of this class can have such a value.
+     */
+    Optional<Function<Object, Object>> getter(Class<?> sourceClass, String name);
+}
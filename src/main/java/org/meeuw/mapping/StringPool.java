@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of strings, used to deduplicate the string values of mapped objects. See {@link Mapper#withStringPool(StringPool)} and
+ * {@link org.meeuw.mapping.annotations.Deduplicate}.
+ * <p>
+ * Lookups don't lock. When the pool is full, new strings are not added any more (the strings that are in it are typically the most frequent ones anyway).
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public final class StringPool {
+
+    /**
+     * The pool used for fields annotated with {@link org.meeuw.mapping.annotations.Deduplicate}, if the mapper has no pool itself.
+     */
+    public static final StringPool DEFAULT = new StringPool(100_000);
+
+    private final Map<String, String> pool = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+    private final int maxLength;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxSize The maximal number of strings in the pool
+     * @param maxLength Longer strings are not pooled
+     */
+    public StringPool(int maxSize, int maxLength) {
+        this.maxSize = maxSize;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @param maxSize The maximal number of strings in the pool. Strings longer than 64 characters are not pooled.
+     */
+    public StringPool(int maxSize) {
+        this(maxSize, 64);
+    }
+
+    /**
+     * @param string A string (may be {@code null})
+     * @return An equal string from the pool, or {@code string} itself
+     */
+    public String intern(String string) {
+        if (string == null || string.length() > maxLength) {
+            return string;
+        }
+        String existing = pool.get(string);
+        if (existing != null) {
+            hits.increment();
+            return existing;
+        }
+        misses.increment();
+        if (pool.size() >= maxSize) {
+            return string;
+        }
+        existing = pool.putIfAbsent(string, string);
+        return existing == null ? string : existing;
+    }
+
+    public int size() {
+        return pool.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The fraction of lookups that were found in the pool
+     */
+    public double hitRate() {
+        final long h = hits();
+        final long total = h + misses();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public void clear() {
+        pool.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "StringPool{size=" + size() + ", hits=" + hits() + ", misses=" + misses() + "}";
+    }
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a {@code String} destination field, of which the values should be deduplicated. Values are then taken from a {@link org.meeuw.mapping.StringPool}:
+ * the one of the {@link org.meeuw.mapping.Mapper#stringPool() mapper} if it has one, otherwise {@link org.meeuw.mapping.StringPool#DEFAULT}.
+ * <p>
+ * This is useful for fields with a limited number of distinct values (codes, language tags, names), in objects that are kept in memory for a long time.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+@Documented
+public @interface Deduplicate {
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a destination field of which the value is expensive to obtain, typically because it has a {@link Source#jsonPath() json path} with filters over
+ * large arrays. If a {@link org.meeuw.mapping.Mapper} has {@link org.meeuw.mapping.ExpensiveFields}, the json paths and json pointers of such fields are evaluated
+ * concurrently.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+@Documented
+public @interface Expensive {
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a destination class as a candidate for interning. If a {@link org.meeuw.mapping.Mapper} has an {@link org.meeuw.mapping.InternCache},
+ * json objects that are sub mapped to a class with this annotation are mapped only once per distinct content, and the resulting object is shared.
+ * <p>
+ * Since the same instance may then end up in many places, this should only be used for classes which are not modified after mapping.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Documented
+public @interface Interned {
+
+    /**
+     * The name of a json field that identifies the object. If empty, the complete json content is used as key.
+     * @return a json field name, e.g. {@code id}
+     */
+    String key() default "";
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.annotations;
+
+/**
+ * How a json blob is encoded. See {@link Source#jsonEncoding()}
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public enum JsonEncoding {
+
+    /**
+     * The encoding is determined by looking at the first bytes of the blob. Textual json is assumed if it is not recognized as one of the binary formats.
+     */
+    AUTO,
+
+    /**
+     * Normal, textual, json
+     */
+    TEXT,
+
+    /**
+     * The binary <a href="https://github.com/FasterXML/smile-format-specification">Smile</a> format. Requires {@code jackson-dataformat-smile}.
+     */
+    SMILE,
+
+    /**
+     * The binary <a href="https://cbor.io/">CBOR</a> format. Requires {@code jackson-dataformat-cbor}.
+     */
+    CBOR
+}
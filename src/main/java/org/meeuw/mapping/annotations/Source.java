@@ -73,6 +73,13 @@ public @interface Source {
 
     Class<?>[] groups() default {};
 
+    /**
+     * How the json in the source field is encoded. This is only relevant if it is binary (e.g. a {@code byte[]}), and normally it can be detected automatically.
+     * @since 0.7
+     * @return The encoding of the json blob
+     */
+    JsonEncoding jsonEncoding() default JsonEncoding.AUTO;
+
 
 
 
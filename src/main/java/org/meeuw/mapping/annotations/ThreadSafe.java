@@ -0,0 +1,19 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a {@link jakarta.xml.bind.annotation.adapters.XmlAdapter} as thread-safe. One instance of it is then shared by all threads. Adapters without
+ * this annotation are never used by more than one thread at the same time.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Documented
+public @interface ThreadSafe {
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a source class as having an id and a version. If a {@link org.meeuw.mapping.Mapper} has a {@link org.meeuw.mapping.MappingResultCache},
+ * the result of mapping an object of this class is then cached, and reused as long as the version didn't change.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Documented
+public @interface Versioned {
+
+    /**
+     * The name of the field that identifies the object.
+     * @return a field name
+     */
+    String id() default "id";
+
+    /**
+     * The name of the field containing the version (or e.g. a last modified timestamp). If the value is {@code null}, the result is not cached.
+     * @return a field name
+     */
+    String version() default "version";
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.meeuw.mapping.BudgetExceededException;
+import org.meeuw.mapping.Mapper;
+import org.meeuw.mapping.MappingBudget;
+
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Enforces a {@link MappingBudget} on json sourced values.
+ * <p>
+ * Blobs of which the size is known beforehand are checked before parsing. The size of other blobs (streams, readers) and the nesting depth are
+ * limited by jackson's {@link StreamReadConstraints}, for which a copy of the object mapper is made (once per {@link Mapper}).
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public final class Budgets {
+
+    // as in the messages of jackson's StreamConstraintsExceptions: "Document nesting depth (1001) exceeds the maximum allowed (1000, from `StreamReadConstraints.getMaxNestingDepth()`)"
+    private static final Pattern EXCEEDS = Pattern.compile("\\((\\d+)\\) exceeds the maximum allowed \\((\\d+)");
+    private static final String MAX_NESTING_DEPTH = "getMaxNestingDepth()";
+    private static final String MAX_DOCUMENT_LENGTH = "getMaxDocumentLength()";
+
+    private Budgets() {
+        // no instances
+    }
+
+    /**
+     * @return An object mapper like {@code objectMapper}, but with its stream read constraints limited by the budget of {@code mapper}. Or {@code objectMapper} itself, if
+     * the budget doesn't limit parsing.
+     */
+    static ObjectMapper constrain(Mapper mapper, ObjectMapper objectMapper) {
+        final MappingBudget budget = mapper.budget();
+        if (!budget.constrainsParsing()) {
+            return objectMapper;
+        }
+        return mapper.derivedObjectMappers().constrained(objectMapper, base -> {
+            final ObjectMapper copy = base.copy();
+            final StreamReadConstraints.Builder constraints = base.getFactory().streamReadConstraints().rebuild();
+            if (budget.maxDepth() != Integer.MAX_VALUE) {
+                constraints.maxNestingDepth(budget.maxDepth());
+            }
+            if (budget.maxBlobBytes() != Long.MAX_VALUE) {
+                constraints.maxDocumentLength(budget.maxBlobBytes());
+            }
+            copy.getFactory().setStreamReadConstraints(constraints.build());
+            return copy;
+        });
+    }
+
+    /**
+     * Checks the size of a json blob, if it is known without reading it.
+     */
+    static void checkBlobSize(MappingBudget budget, Object json, Field sourceField) {
+        if (budget.maxBlobBytes() == Long.MAX_VALUE) {
+            return;
+        }
+        final long size;
+        if (json instanceof byte[] bytes) {
+            size = bytes.length;
+        } else if (json instanceof CharSequence charSequence) {
+            size = charSequence.length();
+        } else if (json instanceof ByteBuffer buffer) {
+            size = buffer.remaining();
+        } else if (json instanceof Path path) {
+            try {
+                size = Files.size(path);
+            } catch (IOException e) {
+                // will fail when parsing too
+                return;
+            }
+        } else {
+            return;
+        }
+        if (size > budget.maxBlobBytes()) {
+            throw new BudgetExceededException(BudgetExceededException.Limit.BLOB_BYTES, budget.maxBlobBytes(), size, where(sourceField));
+        }
+    }
+
+    /**
+     * Checks the number of values a json path produced.
+     */
+    static void checkJsonPathResult(MappingBudget budget, JsonNode result, String jsonPath) {
+        if (result != null && result.isArray() && result.size() > budget.maxJsonPathResults()) {
+            throw new BudgetExceededException(BudgetExceededException.Limit.JSON_PATH_RESULTS, budget.maxJsonPathResults(), result.size(), "json path " + jsonPath);
+        }
+    }
+
+    /**
+     * Translates the exception jackson throws when parsing hit one of the constraints set by {@link #constrain(Mapper, ObjectMapper)}.
+     * @return The exception to throw instead, or {@code null} if {@code e} is not about a limit that {@code budget} set (but e.g. about one of jackson's own
+     * limits on the length of strings and numbers). Then it's just a failure to parse.
+     */
+    static BudgetExceededException exceeded(MappingBudget budget, StreamConstraintsException e, Field sourceField) {
+        final String message = String.valueOf(e.getMessage());
+        final BudgetExceededException.Limit limit;
+        final long allowed;
+        if (budget.maxDepth() != Integer.MAX_VALUE && message.contains(MAX_NESTING_DEPTH)) {
+            limit = BudgetExceededException.Limit.DEPTH;
+            allowed = budget.maxDepth();
+        } else if (budget.maxBlobBytes() != Long.MAX_VALUE && message.contains(MAX_DOCUMENT_LENGTH)) {
+            limit = BudgetExceededException.Limit.BLOB_BYTES;
+            allowed = budget.maxBlobBytes();
+        } else {
+            return null;
+        }
+        final Matcher matcher = EXCEEDS.matcher(message);
+        if (!matcher.find() || Long.parseLong(matcher.group(2)) != allowed) {
+            // some other (stricter) constraint of the object mapper itself
+            return null;
+        }
+        final BudgetExceededException result = new BudgetExceededException(limit, allowed, Long.parseLong(matcher.group(1)), where(sourceField));
+        result.initCause(e);
+        return result;
+    }
+
+    static String where(Field sourceField) {
+        return sourceField == null ? "json" : sourceField.getDeclaringClass().getSimpleName() + "." + sourceField.getName();
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+import org.meeuw.mapping.BudgetExceededException;
+import org.meeuw.mapping.MapException;
+import org.meeuw.mapping.Mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Describes destination fields that are containers: collections ({@link List}, {@link Set}, {@link SortedSet}, {@link Collection}),
+ * {@link Map}s with {@link String} keys, and arrays (also of primitives). The element type is resolved only once per field.
+ * <p>
+ * Containers are filled presized, and primitive arrays are filled from json without boxing.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public final class Containers {
+
+    private static final Map<Field, Optional<Container>> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Returned by {@code convertElement} for elements that are left out
+     */
+    private static final Object SKIP = new Object();
+
+    private Containers() {
+        // no instances
+    }
+
+    public enum Kind {
+        LIST(ArrayList.class),
+        COLLECTION(ArrayList.class),
+        SET(LinkedHashSet.class),
+        SORTED_SET(TreeSet.class),
+        MAP(LinkedHashMap.class),
+        SORTED_MAP(TreeMap.class),
+        ARRAY(null);
+
+        private final Class<?> implementation;
+
+        Kind(Class<?> implementation) {
+            this.implementation = implementation;
+        }
+    }
+
+    /**
+     * @return The (cached) container description of the field, or {@code null} if its type is not a supported container.
+     */
+    public static Container forField(Field field) {
+        Optional<Container> container = CACHE.get(field);
+        if (container == null) {
+            container = CACHE.computeIfAbsent(field, f -> Optional.ofNullable(of(f.getType(), f.getGenericType())));
+        }
+        return container.orElse(null);
+    }
+
+    static Container of(Class<?> type, Type genericType) {
+        if (type.isArray()) {
+            final Class<?> component = type.getComponentType();
+            return new Container(type, Kind.ARRAY, component, Util.isMappable(component));
+        }
+        final Kind kind;
+        if (SortedSet.class.isAssignableFrom(type)) {
+            kind = Kind.SORTED_SET;
+        } else if (Set.class.isAssignableFrom(type)) {
+            kind = Kind.SET;
+        } else if (List.class.isAssignableFrom(type)) {
+            kind = Kind.LIST;
+        } else if (Collection.class.isAssignableFrom(type)) {
+            kind = Kind.COLLECTION;
+        } else if (SortedMap.class.isAssignableFrom(type)) {
+            kind = Kind.SORTED_MAP;
+        } else if (Map.class.isAssignableFrom(type)) {
+            kind = Kind.MAP;
+        } else {
+            return null;
+        }
+        if (!type.isAssignableFrom(kind.implementation)) {
+            // e.g. some specific implementation
+            return null;
+        }
+        final Type[] arguments = genericType instanceof ParameterizedType pt ? pt.getActualTypeArguments() : new Type[0];
+        final Class<?> elementType;
+        if (kind == Kind.MAP || kind == Kind.SORTED_MAP) {
+            if (arguments.length != 2 || bound(arguments[0]) != String.class) {
+                return null;
+            }
+            elementType = bound(arguments[1]);
+        } else {
+            elementType = arguments.length == 1 ? bound(arguments[0]) : Object.class;
+        }
+        return new Container(type, kind, elementType, Util.isMappable(elementType));
+    }
+
+    /**
+     * The class to which values of a type argument are bound. For wildcards that is the upper bound.
+     */
+    private static Class<?> bound(Type type) {
+        if (type instanceof Class<?> c) {
+            return c;
+        }
+        if (type instanceof ParameterizedType pt && pt.getRawType() instanceof Class<?> c) {
+            return c;
+        }
+        if (type instanceof WildcardType wt && wt.getUpperBounds().length == 1) {
+            return bound(wt.getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable<?> tv && tv.getBounds().length == 1) {
+            return bound(tv.getBounds()[0]);
+        }
+        if (type instanceof GenericArrayType gat) {
+            return bound(gat.getGenericComponentType()).arrayType();
+        }
+        return Object.class;
+    }
+
+    /**
+     * @param type The type of the field
+     * @param kind What kind of container it is
+     * @param elementType The type of the elements (or of the values of a map)
+     * @param mappableElements Whether elements are {@link Util#isMappable(Class) mappable}
+     */
+    public record Container(Class<?> type, Kind kind, Class<?> elementType, boolean mappableElements) {
+
+        public boolean isMap() {
+            return kind == Kind.MAP || kind == Kind.SORTED_MAP;
+        }
+
+        public boolean isPrimitiveArray() {
+            return kind == Kind.ARRAY && elementType.isPrimitive();
+        }
+
+        /**
+         * @param value A collection, map, array or json object
+         * @return Whether {@code value} must be converted before it can be set
+         */
+        public boolean needsConversion(Object value) {
+            if (!type.isInstance(value)) {
+                return true;
+            }
+            if (!mappableElements) {
+                return false;
+            }
+            if (value instanceof Collection<?> collection) {
+                for (Object element : collection) {
+                    if (element != null && !elementType.isInstance(element)) {
+                        return true;
+                    }
+                }
+            } else if (value instanceof Map<?, ?> map) {
+                for (Object element : map.values()) {
+                    if (element != null && !elementType.isInstance(element)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Converts a collection, array, map or json object to this container type.
+         * @param value The value to convert
+         * @param element Converts one element, if it is not an instance of {@link #elementType()} already
+         * @return A new container, or {@code value} itself if it is not something that can be converted
+         */
+        public Object convert(Object value, UnaryOperator<Object> element) {
+            if (isMap()) {
+                return convertMap(value, element);
+            }
+            final Collection<?> values;
+            if (value instanceof Collection<?> collection) {
+                values = collection;
+            } else if (value != null && value.getClass().isArray()) {
+                values = arrayAsList(value);
+            } else {
+                return value;
+            }
+            if (kind == Kind.ARRAY) {
+                final Object array = Array.newInstance(elementType, values.size());
+                int i = 0;
+                for (Object o : values) {
+                    final Object converted = convertElement(o, element);
+                    if (converted != SKIP) {
+                        setArrayElement(array, i++, converted);
+                    }
+                }
+                if (i < values.size()) {
+                    final Object shorter = Array.newInstance(elementType, i);
+                    System.arraycopy(array, 0, shorter, 0, i);
+                    return shorter;
+                }
+                return array;
+            }
+            final Collection<Object> result = newCollection(values.size());
+            addConverted(values, element, result);
+            return result;
+        }
+
+        /**
+         * As {@link #convert(Object, UnaryOperator)}, but the elements are added to an existing (empty) collection or map, which is so reused.
+         * @param target The collection or map to fill
+         * @return Whether that was possible. If not, {@code value} must be {@link #convert(Object, UnaryOperator) converted} as usual.
+         */
+        @SuppressWarnings("unchecked")
+        public boolean convertInto(Object value, UnaryOperator<Object> element, Object target) {
+            try {
+                if (isMap()) {
+                    return target instanceof Map<?, ?> map && putConverted(value, element, (Map<String, Object>) map);
+                }
+                if (kind == Kind.ARRAY || !(target instanceof Collection<?> collection)) {
+                    return false;
+                }
+                if (value instanceof Collection<?> values) {
+                    addConverted(values, element, (Collection<Object>) collection);
+                } else if (value != null && value.getClass().isArray()) {
+                    addConverted(arrayAsList(value), element, (Collection<Object>) collection);
+                } else {
+                    return false;
+                }
+                return true;
+            } catch (UnsupportedOperationException uoe) {
+                return false;
+            }
+        }
+
+        private void addConverted(Collection<?> values, UnaryOperator<Object> element, Collection<Object> result) {
+            if (mappableElements && (kind == Kind.SET || kind == Kind.SORTED_SET)) {
+                // sub mapped elements are filled later, but their hash code or order is needed now
+                final Object[] converted = new Object[values.size()];
+                int i = 0;
+                for (Object o : values) {
+                    final Object c = convertElement(o, element);
+                    if (c != SKIP) {
+                        converted[i++] = c;
+                    }
+                }
+                MappingContext.drainCurrent();
+                for (int j = 0; j < i; j++) {
+                    result.add(converted[j]);
+                }
+            } else {
+                for (Object o : values) {
+                    final Object converted = convertElement(o, element);
+                    if (converted != SKIP) {
+                        result.add(converted);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Fills a primitive array from a json array, without boxing. If an element doesn't fit (e.g. {@code null}, a string, or a number too big for an {@code int}),
+         * that is warned about, and the array is filled like any other, element by element.
+         */
+        public Object fromJson(JsonNode array) {
+            final int size = array.size();
+            if (elementType == long.class) {
+                final long[] result = new long[size];
+                for (int i = 0; i < size; i++) {
+                    final JsonNode node = array.get(i);
+                    if (!node.isIntegralNumber() || !node.canConvertToLong()) {
+                        return boxedFromJson(array, node);
+                    }
+                    result[i] = node.longValue();
+                }
+                return result;
+            } else if (elementType == int.class) {
+                final int[] result = new int[size];
+                for (int i = 0; i < size; i++) {
+                    final JsonNode node = array.get(i);
+                    if (!node.isIntegralNumber() || !node.canConvertToInt()) {
+                        return boxedFromJson(array, node);
+                    }
+                    result[i] = node.intValue();
+                }
+                return result;
+            } else if (elementType == double.class) {
+                final double[] result = new double[size];
+                for (int i = 0; i < size; i++) {
+                    final JsonNode node = array.get(i);
+                    if (!node.isNumber()) {
+                        return boxedFromJson(array, node);
+                    }
+                    result[i] = node.doubleValue();
+                }
+                return result;
+            } else if (elementType == boolean.class) {
+                final boolean[] result = new boolean[size];
+                for (int i = 0; i < size; i++) {
+                    final JsonNode node = array.get(i);
+                    if (!node.isBoolean()) {
+                        return boxedFromJson(array, node);
+                    }
+                    result[i] = node.booleanValue();
+                }
+                return result;
+            }
+            return boxedFromJson(array);
+        }
+
+        private Object boxedFromJson(JsonNode array, JsonNode offending) {
+            log.warn("{} is not a {}, so {} is not filled directly", offending, elementType, type.getSimpleName());
+            return boxedFromJson(array);
+        }
+
+        private Object boxedFromJson(JsonNode array) {
+            final int size = array.size();
+            final Object result = Array.newInstance(elementType, size);
+            for (int i = 0; i < size; i++) {
+                setArrayElement(result, i, JsonUtil.unwrapJson(array.get(i)));
+            }
+            return result;
+        }
+
+        private Object convertMap(Object value, UnaryOperator<Object> element) {
+            final int size;
+            if (value instanceof JsonNode json && json.isObject()) {
+                size = json.size();
+            } else if (value instanceof Map<?, ?> map) {
+                size = map.size();
+            } else {
+                return value;
+            }
+            final Map<String, Object> result = newMap(size);
+            putConverted(value, element, result);
+            return result;
+        }
+
+        private boolean putConverted(Object value, UnaryOperator<Object> element, Map<String, Object> result) {
+            if (value instanceof JsonNode json && json.isObject()) {
+                final Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+                while (fields.hasNext()) {
+                    final Map.Entry<String, JsonNode> e = fields.next();
+                    final Object converted = convertElement(JsonUtil.unwrapJson(e.getValue()), element);
+                    if (converted != SKIP) {
+                        result.put(e.getKey(), converted);
+                    }
+                }
+            } else if (value instanceof Map<?, ?> map) {
+                for (Map.Entry<?, ?> e : map.entrySet()) {
+                    final Object converted = convertElement(e.getValue(), element);
+                    if (converted != SKIP) {
+                        result.put(String.valueOf(e.getKey()), converted);
+                    }
+                }
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return The converted element, or {@link #SKIP} if it must be left out
+         */
+        private Object convertElement(Object o, UnaryOperator<Object> element) {
+            if (o == null || elementType.isInstance(o)) {
+                return o;
+            }
+            if (o instanceof Number number) {
+                final Object converted = convertNumber(number);
+                if (converted != null) {
+                    return converted;
+                }
+            }
+            return element.apply(o);
+        }
+
+        /**
+         * @return The number as {@link #elementType()}, {@link #SKIP} if it doesn't fit exactly, or {@code null} if the element type is not a number
+         */
+        private Object convertNumber(Number number) {
+            if (elementType == long.class || elementType == Long.class) {
+                return fits(number, Long.MIN_VALUE, Long.MAX_VALUE) ? number.longValue() : skip(number);
+            } else if (elementType == int.class || elementType == Integer.class) {
+                return fits(number, Integer.MIN_VALUE, Integer.MAX_VALUE) ? number.intValue() : skip(number);
+            } else if (elementType == double.class || elementType == Double.class) {
+                return number.doubleValue();
+            } else if (elementType == float.class || elementType == Float.class) {
+                return number.floatValue();
+            } else if (elementType == short.class || elementType == Short.class) {
+                return fits(number, Short.MIN_VALUE, Short.MAX_VALUE) ? number.shortValue() : skip(number);
+            } else if (elementType == byte.class || elementType == Byte.class) {
+                return fits(number, Byte.MIN_VALUE, Byte.MAX_VALUE) ? number.byteValue() : skip(number);
+            }
+            return null;
+        }
+
+        private Object skip(Number number) {
+            log.warn("{} does not fit in {}, so it is left out of {}", number, elementType, type.getSimpleName());
+            return SKIP;
+        }
+
+        /**
+         * @return Whether {@code number} is integral, and between {@code min} and {@code max}
+         */
+        private static boolean fits(Number number, long min, long max) {
+            if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+                final long l = number.longValue();
+                return l >= min && l <= max;
+            }
+            if (number instanceof BigInteger big) {
+                return big.bitLength() < 64 && big.longValue() >= min && big.longValue() <= max;
+            }
+            if (number instanceof BigDecimal decimal) {
+                try {
+                    final long l = decimal.longValueExact();
+                    return l >= min && l <= max;
+                } catch (ArithmeticException e) {
+                    return false;
+                }
+            }
+            final double d = number.doubleValue();
+            // max + 1 is exact as a double, also for Long.MAX_VALUE
+            return d == Math.rint(d) && d >= min && d < max + 1.0;
+        }
+
+        private void setArrayElement(Object array, int index, Object value) {
+            if (value == null && elementType.isPrimitive()) {
+                return;
+            }
+            try {
+                Array.set(array, index, value);
+            } catch (IllegalArgumentException e) {
+                log.warn("Could not set {} in {}: {}", value, type.getSimpleName(), e.getMessage());
+            }
+        }
+
+        private Collection<Object> newCollection(int size) {
+            return switch (kind) {
+                case SET -> new LinkedHashSet<>(capacity(size));
+                case SORTED_SET -> new TreeSet<>();
+                default -> new ArrayList<>(size);
+            };
+        }
+
+        private Map<String, Object> newMap(int size) {
+            return kind == Kind.SORTED_MAP ? new TreeMap<>() : new LinkedHashMap<>(capacity(size));
+        }
+
+        private static int capacity(int size) {
+            return (int) (size / 0.75f) + 1;
+        }
+
+        private static List<Object> arrayAsList(Object array) {
+            final int length = Array.getLength(array);
+            final List<Object> result = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                result.add(Array.get(array, i));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Converts an element by sub mapping it, or returns {@code null} if that fails (other than by exceeding the budget).
+     */
+    static UnaryOperator<Object> subMapping(Mapper mapper, Container container, Field destination) {
+        return o -> {
+            try {
+                return ValueMapper.subMap(mapper, o, container.elementType(), destination);
+            } catch (BudgetExceededException bee) {
+                throw bee;
+            } catch (MapException me) {
+                log.warn(me.getMessage(), me);
+                return null;
+            }
+        };
+    }
+}
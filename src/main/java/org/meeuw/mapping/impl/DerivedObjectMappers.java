@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+import org.meeuw.mapping.Mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+
+/**
+ * What is derived from the {@link Mapper#objectMapper() object mapper} of one {@link Mapper}: the json path configuration, and the copies of object mappers
+ * that are {@link Budgets#constrain(Mapper, ObjectMapper) constrained} by its {@link Mapper#budget() budget}. It is created lazily, and held by the mapper itself, so
+ * that it is collected together with it, and many differently configured mappers can be used in one JVM.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public final class DerivedObjectMappers {
+
+    private volatile Configuration jsonPathConfiguration;
+
+    // keyed by identity, since object mappers don't implement equals. Besides the object mapper of the mapper, there are only the ones for binary json.
+    private final Map<ObjectMapper, ObjectMapper> constrained = new ConcurrentHashMap<>();
+
+    /**
+     * Used by {@link Mapper}, not meant to be instantiated otherwise.
+     */
+    public DerivedObjectMappers() {
+    }
+
+    /**
+     * @param objectMapper The object mapper of the mapper holding this
+     * @return The json path configuration using {@code objectMapper}
+     */
+    Configuration jsonPathConfiguration(ObjectMapper objectMapper) {
+        Configuration result = jsonPathConfiguration;
+        if (result == null) {
+            result = jsonPathConfiguration = Configuration.builder()
+                .mappingProvider(new JacksonMappingProvider(objectMapper))
+                .jsonProvider(new JacksonJsonNodeJsonProvider(objectMapper))
+                .build();
+        }
+        return result;
+    }
+
+    /**
+     * @param constrain Creates the constrained copy of {@code objectMapper}, if that didn't happen yet
+     * @return The (cached) constrained copy of {@code objectMapper}
+     */
+    ObjectMapper constrained(ObjectMapper objectMapper, UnaryOperator<ObjectMapper> constrain) {
+        ObjectMapper result = constrained.get(objectMapper);
+        if (result == null) {
+            result = constrained.computeIfAbsent(objectMapper, constrain);
+        }
+        return result;
+    }
+}
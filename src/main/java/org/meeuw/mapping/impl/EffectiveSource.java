@@ -2,6 +2,7 @@ package org.meeuw.mapping.impl;
 
 import java.util.Arrays;
 
+import org.meeuw.mapping.annotations.JsonEncoding;
 import org.meeuw.mapping.annotations.Source;
 
 @lombok.Builder
@@ -16,7 +17,11 @@ public record EffectiveSource(
 
     String[] path,
 
-    Class<?>[] groups
+    Class<?>[] groups,
+
+    JsonEncoding jsonEncoding,
+
+    long groupsMask
 ) {
 
     @Source
@@ -59,9 +64,16 @@ public record EffectiveSource(
 
         if (Arrays.equals(DEFAULTS.groups(), source.groups())) {
             builder.groups(defaults.groups());
+            builder.groupsMask(Groups.mask(defaults.groups()));
          } else {
              builder.groups(source.groups());
+             builder.groupsMask(Groups.mask(source.groups()));
          }
+        if (DEFAULTS.jsonEncoding() == source.jsonEncoding()) {
+            builder.jsonEncoding(defaults.jsonEncoding());
+        } else {
+            builder.jsonEncoding(source.jsonEncoding());
+        }
 /*
         if (Arrays.equals(DEFAULTS.customMappers(), source.customMappers())) {
             builder.customMappers(defaults.customMappers());
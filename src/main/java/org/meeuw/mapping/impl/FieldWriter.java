@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Writes the value of one destination field. That is done directly in the field, or via a method, which is resolved once into a {@link MethodHandle}.
+ * <p>
+ * For {@link Util#builtClass(Class) builders} a method is always looked for, since their fields (if any) need not correspond to the fields of the built class,
+ * which carry the annotations. In that order: a fluent method with the name of the field ({@code title(String)}, as generated by lombok and Immutables), a setter
+ * ({@code setTitle(String)}, as in protobuf builders), and, for collections and maps, {@code addAllTitle(Iterable)} and {@code putAllTitle(Map)}. For other
+ * classes, setters are only used if that is requested (e.g. because they validate their argument).
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public final class FieldWriter {
+
+    private static final MethodType WRITE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Field field;
+    private final Method method;
+    private final MethodHandle handle;
+    private final boolean primitiveParameter;
+    private final boolean direct;
+
+    private FieldWriter(Field field, Method method, MethodHandle handle, boolean direct) {
+        this.field = field;
+        this.method = method;
+        this.handle = handle;
+        this.direct = direct;
+        this.primitiveParameter = method != null && method.getParameterTypes()[0].isPrimitive();
+    }
+
+    /**
+     * @param destinationClass The class of the objects to write to
+     * @param field The (annotated) destination field
+     * @param viaSetters Whether for classes that are not builders, setters must be used too (if there are)
+     * @return The writer, or {@code null} if the destination is a builder that offers no way to write the field
+     */
+    public static FieldWriter of(Class<?> destinationClass, Field field, boolean viaSetters) {
+        final boolean builder = Util.builtClass(destinationClass) != null;
+        if (builder || viaSetters) {
+            final Optional<Method> method = findMethod(destinationClass, field, builder);
+            if (method.isPresent()) {
+                try {
+                    final Method m = method.get();
+                    m.setAccessible(true);
+                    final MethodHandle handle = MethodHandles.lookup().unreflect(m).asType(WRITE);
+                    return new FieldWriter(field, m, handle, false);
+                } catch (IllegalAccessException | RuntimeException e) {
+                    log.warn("Could not use {} to write {}: {}", method.get(), field, e.getMessage());
+                }
+            }
+        }
+        if (builder) {
+            // e.g. a lombok builder without fluent methods. It may have a field with the same name.
+            try {
+                final Field builderField = destinationClass.getDeclaredField(field.getName());
+                builderField.setAccessible(true);
+                return new FieldWriter(builderField, null, null, false);
+            } catch (NoSuchFieldException e) {
+                log.warn("No way to write {} in {}", field, destinationClass);
+                return null;
+            }
+        }
+        field.setAccessible(true);
+        return new FieldWriter(field, null, null, !builder);
+    }
+
+    private static Optional<Method> findMethod(Class<?> destinationClass, Field field, boolean builder) {
+        final String name = field.getName();
+        final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        final List<String> candidates = new ArrayList<>();
+        if (builder) {
+            candidates.add(name);
+            candidates.add("set" + capitalized);
+        } else {
+            candidates.add("set" + capitalized);
+            candidates.add(name);
+        }
+        if (Collection.class.isAssignableFrom(field.getType())) {
+            candidates.add("addAll" + capitalized);
+        }
+        if (Map.class.isAssignableFrom(field.getType())) {
+            candidates.add("putAll" + capitalized);
+        }
+        for (String candidate : candidates) {
+            for (Class<?> c = destinationClass; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Method m : c.getDeclaredMethods()) {
+                    if (m.getName().equals(candidate)
+                        && m.getParameterCount() == 1
+                        && !Modifier.isStatic(m.getModifiers())
+                        && accepts(m.getParameterTypes()[0], field.getType())) {
+                        return Optional.of(m);
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean accepts(Class<?> parameterType, Class<?> valueType) {
+        if (parameterType.isAssignableFrom(valueType)) {
+            return true;
+        }
+        if (parameterType.isPrimitive() || valueType.isPrimitive()) {
+            return MethodType.methodType(parameterType).wrap().returnType() == MethodType.methodType(valueType).wrap().returnType();
+        }
+        return parameterType == Iterable.class && Collection.class.isAssignableFrom(valueType);
+    }
+
+    /**
+     * @param destination The object to write to
+     * @param value The value to write
+     */
+    public void write(Object destination, Object value) throws ReflectiveOperationException {
+        if (handle == null) {
+            field.set(destination, value);
+        } else if (value != null || !primitiveParameter) {
+            try {
+                handle.invokeExact(destination, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    /**
+     * @return Whether this writes directly in the annotated field (so the value may also be {@link MappingPlan.Copier copied} directly)
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    @Override
+    public String toString() {
+        return method == null ? "field " + field.getName() : "method " + method.getName();
+    }
+}
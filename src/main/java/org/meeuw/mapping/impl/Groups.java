@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.meeuw.mapping.annotations.Source;
+
+/**
+ * Support for {@link Source#groups()}. Every group class is interned into a small integer id, so that a set of groups can be represented by
+ * a {@code long} bitmask. Whether an annotation matches the requested groups then is a matter of one {@code &}.
+ * <p>
+ * For the requested groups, the mask contains the groups themselves and all their superclasses and interfaces, because
+ * an annotation group matches if it {@link Class#isAssignableFrom(Class) is assignable from} one of the requested groups.
+ * <p>
+ * Only the first {@value #INLINE} ids fit in a mask. Sets of groups with higher ids are interned as {@link BitSet}s, and the mask then is the
+ * index of that set, with the highest bit set. Masks so still identify sets of groups exactly, but matching them needs a lookup.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public class Groups {
+
+    /**
+     * The number of group ids that fit in a mask directly.
+     */
+    static final int INLINE = Long.SIZE - 1;
+
+    private static final long OVERFLOW = Long.MIN_VALUE;
+
+    private static final Map<Class<?>, Integer> IDS = new ConcurrentHashMap<>();
+
+    private static final Map<BitSet, Long> OVERFLOWING = new HashMap<>();
+    private static final List<BitSet> OVERFLOWING_SETS = new ArrayList<>();
+
+    private static final ClassValue<Long> REQUESTED = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> group) {
+            final BitSet bits = new BitSet();
+            Deque<Class<?>> todo = new ArrayDeque<>();
+            todo.add(group);
+            while (!todo.isEmpty()) {
+                Class<?> c = todo.remove();
+                bits.set(id(c));
+                if (c.getSuperclass() != null) {
+                    todo.add(c.getSuperclass());
+                }
+                todo.addAll(Arrays.asList(c.getInterfaces()));
+            }
+            return encode(bits);
+        }
+    };
+
+    private Groups() {
+        // no instances
+    }
+
+    static synchronized int id(Class<?> group) {
+        Integer id = IDS.get(group);
+        if (id == null) {
+            id = IDS.size();
+            IDS.put(group, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param groups The groups of a {@link Source} annotation
+     * @return The mask for them
+     */
+    public static long mask(Class<?>... groups) {
+        long mask = 0;
+        for (Class<?> group : groups) {
+            final int id = id(group);
+            if (id >= INLINE) {
+                final BitSet bits = new BitSet();
+                for (Class<?> g : groups) {
+                    bits.set(id(g));
+                }
+                return encode(bits);
+            }
+            mask |= 1L << id;
+        }
+        return mask;
+    }
+
+    /**
+     * @param groups Groups as requested in a call to {@link org.meeuw.mapping.Mapper#map(Object, Object, Class[])}
+     * @return The mask for them, including all their supertypes.
+     */
+    public static long requested(Class<?>... groups) {
+        long mask = 0;
+        for (Class<?> group : groups) {
+            mask = or(mask, REQUESTED.get(group));
+        }
+        return mask;
+    }
+
+    /**
+     * @param sourceMask The {@link #mask(Class[]) mask} of a source annotation. {@code 0} if it has no groups.
+     * @param requestedMask The {@link #requested(Class[]) requested groups}. {@code 0} if no groups were requested
+     * @return Whether the source annotation should be used.
+     */
+    public static boolean matches(long sourceMask, long requestedMask) {
+        if (sourceMask == 0 || requestedMask == 0) {
+            return true;
+        }
+        if (((sourceMask | requestedMask) & OVERFLOW) == 0) {
+            return (sourceMask & requestedMask) != 0;
+        }
+        return bits(sourceMask).intersects(bits(requestedMask));
+    }
+
+    private static long or(long mask1, long mask2) {
+        if (((mask1 | mask2) & OVERFLOW) == 0) {
+            return mask1 | mask2;
+        }
+        final BitSet result = (BitSet) bits(mask1).clone();
+        result.or(bits(mask2));
+        return encode(result);
+    }
+
+    private static long encode(BitSet bits) {
+        if (bits.length() <= INLINE) {
+            return bits.isEmpty() ? 0 : bits.toLongArray()[0];
+        }
+        return intern(bits);
+    }
+
+    private static synchronized long intern(BitSet bits) {
+        Long mask = OVERFLOWING.get(bits);
+        if (mask == null) {
+            mask = OVERFLOW | OVERFLOWING_SETS.size();
+            final BitSet copy = (BitSet) bits.clone();
+            OVERFLOWING_SETS.add(copy);
+            OVERFLOWING.put(copy, mask);
+        }
+        return mask;
+    }
+
+    /**
+     * @return The set of group ids the mask stands for. Must not be modified.
+     */
+    private static synchronized BitSet bits(long mask) {
+        if ((mask & OVERFLOW) != 0) {
+            return OVERFLOWING_SETS.get((int) (mask & ~OVERFLOW));
+        }
+        return BitSet.valueOf(new long[] {mask});
+    }
+}
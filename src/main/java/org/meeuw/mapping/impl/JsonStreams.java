@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Utilities to read json records one by one from (big) inputs. Both 'ndjson' (or actually any sequence of json values, separated by
+ * whitespace) and one big json array are supported. Only one record at a time is parsed, using one parser for the entire input.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public class JsonStreams {
+
+    /**
+     * Regions smaller than this are not split any more
+     */
+    static final long MIN_SPLIT = 1 << 16;
+
+    /**
+     * The size of the parts of a file that are mapped into memory at once.
+     */
+    static final long WINDOW = 1 << 26;
+
+    private JsonStreams() {
+        // no instances
+    }
+
+    /**
+     * @param inputStream The input to read json records from. Will be closed if the returned stream is closed.
+     * @return A stream of {@link JsonNode}s, one for every json record, or for every element of a top-level json array.
+     */
+    public static Stream<JsonNode> stream(InputStream inputStream) throws IOException {
+        return stream(JsonUtil.MAPPER, inputStream);
+    }
+
+    /**
+     * As {@link #stream(InputStream)}, but parses with the given {@link ObjectMapper}
+     * @since 0.7
+     */
+    public static Stream<JsonNode> stream(ObjectMapper objectMapper, InputStream inputStream) throws IOException {
+        final JsonParser parser = objectMapper.createParser(inputStream);
+        return StreamSupport.stream(new ParserSpliterator(objectMapper, parser, true), false)
+            .onClose(() -> close(parser));
+    }
+
+    /**
+     * As {@link #stream(InputStream)}, but the file is memory mapped. If it is not a json array, the returned stream can be split (at newlines) for parallel processing.
+     * @param path The file to read json records from
+     * @return A stream of {@link JsonNode}s. Should be closed, to close the file.
+     */
+    public static Stream<JsonNode> stream(Path path) throws IOException {
+        return stream(JsonUtil.MAPPER, path);
+    }
+
+    /**
+     * As {@link #stream(Path)}, but parses with the given {@link ObjectMapper}
+     * @since 0.7
+     */
+    public static Stream<JsonNode> stream(ObjectMapper objectMapper, Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            final Spliterator<JsonNode> spliterator;
+            if (firstNonWhitespace(channel, 0, size) == '[') {
+                spliterator = new ParserSpliterator(objectMapper, objectMapper.createParser(new MappedRegionInputStream(channel, 0, size)), true);
+            } else {
+                spliterator = new NdjsonFileSpliterator(objectMapper, channel, 0, size);
+            }
+            return StreamSupport.stream(spliterator, false)
+                .onClose(() -> close(channel));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int firstNonWhitespace(FileChannel channel, long position, long end) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(512);
+        while (position < end) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (!Character.isWhitespace(b)) {
+                    return b;
+                }
+            }
+            position += read;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads json records from a {@link JsonParser}. It can't split itself, other than in the default way
+     * of {@link Spliterators.AbstractSpliterator} (buffering a number of records, which can then be processed in parallel).
+     */
+    static class ParserSpliterator extends Spliterators.AbstractSpliterator<JsonNode> {
+        private final ObjectMapper objectMapper;
+        private final JsonParser parser;
+        private Boolean inArray;
+
+        /**
+         * @param detectArray Whether a top-level json array must be recognized, and its elements be the records. Otherwise, every value is a record.
+         */
+        ParserSpliterator(ObjectMapper objectMapper, JsonParser parser, boolean detectArray) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.objectMapper = objectMapper;
+            this.parser = parser;
+            this.inArray = detectArray ? null : Boolean.FALSE;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super JsonNode> action) {
+            try {
+                JsonToken token = parser.nextToken();
+                if (inArray == null) {
+                    inArray = token == JsonToken.START_ARRAY;
+                    if (inArray) {
+                        token = parser.nextToken();
+                    }
+                }
+                if (token == null || (inArray && token == JsonToken.END_ARRAY)) {
+                    return false;
+                }
+                action.accept(objectMapper.readTree(parser));
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads newline separated json records from a region of a file. Such a region can be split in two at a newline. A record that is a json array is not unwrapped,
+     * that only happens for {@link #stream(ObjectMapper, Path) entire files} starting with {@code [}.
+     */
+    static class NdjsonFileSpliterator implements Spliterator<JsonNode> {
+        private final ObjectMapper objectMapper;
+        private final FileChannel channel;
+        private long start;
+        private final long end;
+        private JsonParser jsonParser;
+        private ParserSpliterator parser;
+
+        NdjsonFileSpliterator(ObjectMapper objectMapper, FileChannel channel, long start, long end) {
+            this.objectMapper = objectMapper;
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super JsonNode> action) {
+            if (parser == null) {
+                try {
+                    jsonParser = objectMapper.createParser(new MappedRegionInputStream(channel, start, end));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                parser = new ParserSpliterator(objectMapper, jsonParser, false);
+            } else if (jsonParser.isClosed()) {
+                return false;
+            }
+            if (parser.tryAdvance(action)) {
+                return true;
+            }
+            close(jsonParser);
+            return false;
+        }
+
+        @Override
+        public Spliterator<JsonNode> trySplit() {
+            if (parser != null || end - start < MIN_SPLIT) {
+                return null;
+            }
+            try {
+                long newline = nextNewline(start + (end - start) / 2);
+                if (newline < 0) {
+                    return null;
+                }
+                NdjsonFileSpliterator prefix = new NdjsonFileSpliterator(objectMapper, channel, start, newline + 1);
+                start = newline + 1;
+                return prefix;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private long nextNewline(long position) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(8192);
+            while (position < end) {
+                buffer.clear();
+                if (end - position < buffer.capacity()) {
+                    buffer.limit((int) (end - position));
+                }
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        return position + i;
+                    }
+                }
+                position += read;
+            }
+            return -1;
+        }
+
+        @Override
+        public long estimateSize() {
+            // the number of bytes, which is at least proportional to the number of records
+            return end - start;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /**
+     * Reads a region of a file, mapping it into memory in windows of at most {@link #WINDOW} bytes.
+     */
+    static class MappedRegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+        private MappedByteBuffer buffer;
+
+        MappedRegionInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        private boolean ensureBuffer() throws IOException {
+            if (buffer == null || !buffer.hasRemaining()) {
+                if (position >= end) {
+                    return false;
+                }
+                long length = Math.min(WINDOW, end - position);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                position += length;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureBuffer()) {
+                return -1;
+            }
+            return buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!ensureBuffer()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer == null ? 0 : buffer.remaining();
+        }
+
+        @Override
+        public void close() {
+            // the channel is owned by the stream
+            buffer = null;
+        }
+    }
+}
@@ -0,0 +1,573 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.meeuw.mapping.BudgetExceededException;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.*;
+
+/**
+ * A structural index ('tape') of a textual json blob ({@code byte[]} or {@link String}), as an alternative for a {@link JsonNode} tree. See {@link org.meeuw.mapping.Mapper#withIndexesJson(boolean)}.
+ * <p>
+ * The blob is scanned once, recording for every token (object, array, key, and scalar value) only its kind and its offsets in a few flat arrays. Json pointers
+ * are resolved by navigating these arrays, skipping complete objects and arrays at once. Only the values that are actually requested are decoded: scalars
+ * directly, objects and arrays by parsing just their part of the blob.
+ * <p>
+ * Only strict json is indexed. If the blob contains anything else (comments, single quotes, trailing content, malformed numbers or escapes), {@link #index(Object, ObjectMapper, Field)} returns
+ * {@link #UNINDEXABLE}, and the blob should be parsed into a tree as usual.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public final class JsonTape {
+
+    private static final byte OBJECT = 1;
+    private static final byte ARRAY = 2;
+    private static final byte STRING = 3;
+    private static final byte ESCAPED_STRING = 4;
+    private static final byte KEY = 5;
+    private static final byte ESCAPED_KEY = 6;
+    private static final byte NUMBER = 7;
+    private static final byte INT = 8;
+    private static final byte TRUE = 9;
+    private static final byte FALSE = 10;
+    private static final byte NULL = 11;
+
+    /**
+     * Returned by {@link #index(Object, ObjectMapper, Field)} for blobs that can't be indexed.
+     */
+    static final JsonTape UNINDEXABLE = new JsonTape(null, null, null, new byte[0], new int[0], new int[0], new int[0]);
+
+    private static final Map<String, JsonPointer> POINTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Optional<JsonPointer>> SIMPLE_PATHS = new ConcurrentHashMap<>();
+
+    private final byte[] bytes;
+    private final String string;
+    private final ObjectMapper objectMapper;
+
+    private final byte[] kinds;
+    // for strings and keys the offsets are without the quotes
+    private final int[] starts;
+    private final int[] ends;
+    // the index of the next token on the same level. For scalars that is just the next one
+    private final int[] nexts;
+
+    private JsonTape(byte[] bytes, String string, ObjectMapper objectMapper, byte[] kinds, int[] starts, int[] ends, int[] nexts) {
+        this.bytes = bytes;
+        this.string = string;
+        this.objectMapper = objectMapper;
+        this.kinds = kinds;
+        this.starts = starts;
+        this.ends = ends;
+        this.nexts = nexts;
+    }
+
+    /**
+     * @param json A {@code byte[]} (UTF-8) or {@link String} containing json
+     * @param objectMapper Used to decode the parts of the blob that are not simple scalars. Its maximal nesting depth applies to the index too.
+     * @param sourceField The field the json came from, to report exceeding the depth
+     * @return The index, or {@link #UNINDEXABLE}
+     */
+    static JsonTape index(Object json, ObjectMapper objectMapper, Field sourceField) {
+        final Indexer indexer;
+        if (json instanceof byte[] b) {
+            indexer = new Indexer(b, null, b.length);
+        } else if (json instanceof String s) {
+            indexer = new Indexer(null, s, s.length());
+        } else {
+            return UNINDEXABLE;
+        }
+        indexer.maxDepth = objectMapper.getFactory().streamReadConstraints().getMaxNestingDepth();
+        indexer.sourceField = sourceField;
+        if (!indexer.run()) {
+            return UNINDEXABLE;
+        }
+        final int count = indexer.count;
+        return new JsonTape(indexer.bytes, indexer.string, objectMapper,
+            Arrays.copyOf(indexer.kinds, count),
+            Arrays.copyOf(indexer.starts, count),
+            Arrays.copyOf(indexer.ends, count),
+            Arrays.copyOf(indexer.nexts, count));
+    }
+
+    /**
+     * @return The number of tokens
+     */
+    public int size() {
+        return kinds.length;
+    }
+
+    /**
+     * As {@link JsonNode#at(String)}
+     */
+    public JsonNode at(String pointer) {
+        JsonPointer compiled = POINTERS.get(pointer);
+        if (compiled == null) {
+            compiled = POINTERS.computeIfAbsent(pointer, JsonPointer::compile);
+        }
+        return at(compiled);
+    }
+
+    /**
+     * As {@link JsonNode#at(JsonPointer)}
+     * @return The value, decoded only now, or a {@link MissingNode} if there is none
+     */
+    public JsonNode at(JsonPointer pointer) {
+        if (kinds.length == 0) {
+            return MissingNode.getInstance();
+        }
+        int t = 0;
+        for (JsonPointer p = pointer; !p.matches(); p = p.tail()) {
+            if (kinds[t] == OBJECT) {
+                t = member(t, p.getMatchingProperty());
+            } else if (kinds[t] == ARRAY && p.getMatchingIndex() >= 0) {
+                t = element(t, p.getMatchingIndex());
+            } else {
+                t = -1;
+            }
+            if (t < 0) {
+                return MissingNode.getInstance();
+            }
+        }
+        return node(t);
+    }
+
+    /**
+     * Converts a simple json path, consisting only of property names and array indices (like {@code $.a.b[0]}, {@code a['b']}), to the equivalent json pointer.
+     * @return The json pointer, or {@code null} if the path is not that simple (e.g. contains wildcards, filters or deep scans).
+     */
+    static JsonPointer simplePath(String jsonPath) {
+        Optional<JsonPointer> result = SIMPLE_PATHS.get(jsonPath);
+        if (result == null) {
+            result = SIMPLE_PATHS.computeIfAbsent(jsonPath, p -> Optional.ofNullable(compileSimplePath(p)));
+        }
+        return result.orElse(null);
+    }
+
+    private static JsonPointer compileSimplePath(String path) {
+        final StringBuilder pointer = new StringBuilder();
+        final int length = path.length();
+        int i = path.startsWith("$") ? 1 : 0;
+        boolean first = true;
+        while (i < length) {
+            final char c = path.charAt(i);
+            if (c == '[') {
+                final int close = path.indexOf(']', i);
+                if (close < 0) {
+                    return null;
+                }
+                final String segment = path.substring(i + 1, close);
+                if (segment.length() >= 2 && (segment.charAt(0) == '\'' || segment.charAt(0) == '"') && segment.charAt(segment.length() - 1) == segment.charAt(0)) {
+                    final String name = segment.substring(1, segment.length() - 1);
+                    if (name.indexOf('\\') >= 0 || name.indexOf(segment.charAt(0)) >= 0) {
+                        return null;
+                    }
+                    appendSegment(pointer, name);
+                } else if (!segment.isEmpty() && segment.chars().allMatch(Character::isDigit)) {
+                    pointer.append('/').append(segment);
+                } else {
+                    return null;
+                }
+                i = close + 1;
+            } else if (c == '.' || (first && i == 0)) {
+                final int start = c == '.' ? i + 1 : i;
+                int end = start;
+                while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    if ("]*?@()$:, '\"".indexOf(path.charAt(end)) >= 0) {
+                        return null;
+                    }
+                    end++;
+                }
+                if (end == start) {
+                    // also deep scans ('..')
+                    return null;
+                }
+                appendSegment(pointer, path.substring(start, end));
+                i = end;
+            } else {
+                return null;
+            }
+            first = false;
+        }
+        return JsonPointer.compile(pointer.toString());
+    }
+
+    private static void appendSegment(StringBuilder pointer, String name) {
+        pointer.append('/').append(name.replace("~", "~0").replace("/", "~1"));
+    }
+
+    private int member(int object, String name) {
+        final int end = nexts[object];
+        int found = -1;
+        for (int k = object + 1; k < end; k = nexts[k + 1]) {
+            // like in a tree, the last one wins if a key occurs more than once
+            if (keyEquals(k, name)) {
+                found = k + 1;
+            }
+        }
+        return found;
+    }
+
+    private int element(int array, int index) {
+        final int end = nexts[array];
+        int n = 0;
+        for (int k = array + 1; k < end; k = nexts[k]) {
+            if (n++ == index) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int k, String name) {
+        if (kinds[k] == ESCAPED_KEY) {
+            return name.equals(parse(starts[k] - 1, ends[k] + 1).textValue());
+        }
+        final int start = starts[k];
+        final int length = ends[k] - start;
+        if (string != null) {
+            return length == name.length() && string.regionMatches(start, name, 0, length);
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) >= 0x80) {
+                return name.equals(new String(bytes, start, length, StandardCharsets.UTF_8));
+            }
+        }
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[start + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private JsonNode node(int t) {
+        final int start = starts[t];
+        final int end = ends[t];
+        return switch (kinds[t]) {
+            case STRING -> TextNode.valueOf(bytes != null ? new String(bytes, start, end - start, StandardCharsets.UTF_8) : string.substring(start, end));
+            case ESCAPED_STRING -> parse(start - 1, end + 1);
+            case INT -> IntNode.valueOf(parseInt(start, end));
+            case TRUE -> BooleanNode.TRUE;
+            case FALSE -> BooleanNode.FALSE;
+            case NULL -> NullNode.getInstance();
+            default -> parse(start, end);
+        };
+    }
+
+    private int parseInt(int start, int end) {
+        final boolean negative = charAt(start) == '-';
+        int result = 0;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            result = result * 10 + (charAt(i) - '0');
+        }
+        return negative ? -result : result;
+    }
+
+    private int charAt(int i) {
+        return bytes != null ? bytes[i] & 0xff : string.charAt(i);
+    }
+
+    /**
+     * Parses a part of the blob with the object mapper
+     */
+    private JsonNode parse(int start, int end) {
+        try {
+            return bytes != null ? objectMapper.readTree(bytes, start, end - start) : objectMapper.readTree(string.substring(start, end));
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this == UNINDEXABLE ? "UNINDEXABLE" : "JsonTape{" + kinds.length + " tokens}";
+    }
+
+    /**
+     * Builds the index in one pass, without recursion.
+     */
+    private static final class Indexer {
+        private static final int VALUE = 0;
+        private static final int KEY_OR_END = 1;
+        private static final int AFTER_VALUE = 2;
+
+        private final byte[] bytes;
+        private final String string;
+        private final int length;
+        private int maxDepth;
+        private Field sourceField;
+
+        private byte[] kinds;
+        private int[] starts;
+        private int[] ends;
+        private int[] nexts;
+        private int count;
+
+        private int[] stack = new int[16];
+        private int depth;
+
+        Indexer(byte[] bytes, String string, int length) {
+            this.bytes = bytes;
+            this.string = string;
+            this.length = length;
+            final int capacity = Math.max(16, length / 8);
+            kinds = new byte[capacity];
+            starts = new int[capacity];
+            ends = new int[capacity];
+            nexts = new int[capacity];
+        }
+
+        /**
+         * @return Whether the blob is strict json
+         */
+        boolean run() {
+            int i = 0;
+            int state = VALUE;
+            // directly after '[' or '{'
+            boolean first = false;
+            while (true) {
+                i = skipWhitespace(i);
+                if (state == AFTER_VALUE && depth == 0) {
+                    return i >= length && count > 0;
+                }
+                if (i >= length) {
+                    return false;
+                }
+                final int c = at(i);
+                if (state == VALUE) {
+                    if (c == '{') {
+                        open(OBJECT, i++);
+                        state = KEY_OR_END;
+                        first = true;
+                        continue;
+                    } else if (c == '[') {
+                        open(ARRAY, i++);
+                        first = true;
+                        continue;
+                    } else if (c == ']' && first) {
+                        close(i++);
+                    } else {
+                        i = scalar(i, c);
+                        if (i < 0) {
+                            return false;
+                        }
+                    }
+                    state = AFTER_VALUE;
+                } else if (state == KEY_OR_END) {
+                    if (c == '}' && first) {
+                        close(i++);
+                        state = AFTER_VALUE;
+                    } else if (c == '"') {
+                        i = string(i, KEY);
+                        if (i < 0) {
+                            return false;
+                        }
+                        i = skipWhitespace(i);
+                        if (i >= length || at(i) != ':') {
+                            return false;
+                        }
+                        i++;
+                        state = VALUE;
+                    } else {
+                        return false;
+                    }
+                } else {
+                    final boolean object = kinds[stack[depth - 1]] == OBJECT;
+                    if (c == ',') {
+                        i++;
+                        state = object ? KEY_OR_END : VALUE;
+                    } else if (c == (object ? '}' : ']')) {
+                        close(i++);
+                    } else {
+                        return false;
+                    }
+                }
+                first = false;
+            }
+        }
+
+        private int at(int i) {
+            return bytes != null ? bytes[i] & 0xff : string.charAt(i);
+        }
+
+        private int skipWhitespace(int i) {
+            while (i < length) {
+                final int c = at(i);
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                    break;
+                }
+                i++;
+            }
+            return i;
+        }
+
+        private int add(byte kind, int start, int end) {
+            if (count == kinds.length) {
+                final int capacity = count * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                nexts = Arrays.copyOf(nexts, capacity);
+            }
+            kinds[count] = kind;
+            starts[count] = start;
+            ends[count] = end;
+            nexts[count] = count + 1;
+            return count++;
+        }
+
+        private void open(byte kind, int i) {
+            if (depth >= maxDepth) {
+                throw new BudgetExceededException(BudgetExceededException.Limit.DEPTH, maxDepth, depth + 1, Budgets.where(sourceField));
+            }
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = add(kind, i, -1);
+        }
+
+        private void close(int i) {
+            final int t = stack[--depth];
+            ends[t] = i + 1;
+            nexts[t] = count;
+        }
+
+        /**
+         * @return The offset after the scalar, or {@code -1} if it is not valid
+         */
+        private int scalar(int i, int c) {
+            return switch (c) {
+                case '"' -> string(i, STRING);
+                case 't' -> literal(i, "true", TRUE);
+                case 'f' -> literal(i, "false", FALSE);
+                case 'n' -> literal(i, "null", NULL);
+                default -> c == '-' || (c >= '0' && c <= '9') ? number(i) : -1;
+            };
+        }
+
+        private int string(int i, byte kind) {
+            boolean escaped = false;
+            int j = i + 1;
+            while (j < length) {
+                final int c = at(j);
+                if (c == '"') {
+                    add(escaped ? (byte) (kind + 1) : kind, i + 1, j);
+                    return j + 1;
+                } else if (c == '\\') {
+                    escaped = true;
+                    j = escape(j + 1);
+                    if (j < 0) {
+                        return -1;
+                    }
+                } else if (c < 0x20) {
+                    return -1;
+                } else {
+                    j++;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @param i The offset after the backslash
+         * @return The offset after the escape sequence, or {@code -1} if it is not valid
+         */
+        private int escape(int i) {
+            if (i >= length) {
+                return -1;
+            }
+            return switch (at(i)) {
+                case '"', '\\', '/', 'b', 'f', 'n', 'r', 't' -> i + 1;
+                case 'u' -> {
+                    if (i + 5 > length) {
+                        yield -1;
+                    }
+                    for (int j = i + 1; j < i + 5; j++) {
+                        if (Character.digit(at(j), 16) < 0) {
+                            yield -1;
+                        }
+                    }
+                    yield i + 5;
+                }
+                default -> -1;
+            };
+        }
+
+        private int literal(int i, String literal, byte kind) {
+            if (i + literal.length() > length) {
+                return -1;
+            }
+            for (int j = 0; j < literal.length(); j++) {
+                if (at(i + j) != literal.charAt(j)) {
+                    return -1;
+                }
+            }
+            add(kind, i, i + literal.length());
+            return i + literal.length();
+        }
+
+        private int number(int i) {
+            int j = at(i) == '-' ? i + 1 : i;
+            final int digitsStart = j;
+            while (j < length && isDigit(at(j))) {
+                j++;
+            }
+            final int digits = j - digitsStart;
+            if (digits == 0 || (digits > 1 && at(digitsStart) == '0')) {
+                return -1;
+            }
+            boolean simple = digits <= 9;
+            if (j < length && at(j) == '.') {
+                simple = false;
+                j = digits(j + 1);
+                if (j < 0) {
+                    return -1;
+                }
+            }
+            if (j < length && (at(j) == 'e' || at(j) == 'E')) {
+                simple = false;
+                j++;
+                if (j < length && (at(j) == '+' || at(j) == '-')) {
+                    j++;
+                }
+                j = digits(j);
+                if (j < 0) {
+                    return -1;
+                }
+            }
+            add(simple ? INT : NUMBER, i, j);
+            return j;
+        }
+
+        /**
+         * @return The offset after one or more digits, or {@code -1} if there are none
+         */
+        private int digits(int i) {
+            int j = i;
+            while (j < length && isDigit(at(j))) {
+                j++;
+            }
+            return j == i ? -1 : j;
+        }
+
+        private static boolean isDigit(int c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+}
@@ -5,19 +5,32 @@ package org.meeuw.mapping.impl;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.IOException;
-import java.lang.reflect.Field;
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-import java.util.function.UnaryOperator;
-
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.jayway.jsonpath.*;
-import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
-import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+import java.util.function.*;
+
+import org.meeuw.mapping.BinaryBlob;
+import org.meeuw.mapping.BudgetExceededException;
+import org.meeuw.mapping.JsonMappers;
+import org.meeuw.mapping.Mapper;
+import org.meeuw.mapping.annotations.JsonEncoding;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
 
 import static org.meeuw.mapping.annotations.Source.UNSET;
 import static org.meeuw.mapping.impl.Util.getAnnotation;
@@ -38,21 +51,16 @@ public class JsonUtil {
         // no instances
     }
     /**
-     * Lenient json mapper
+     * Lenient json mapper, the default {@link Mapper#objectMapper()}
      */
-    static final ObjectMapper MAPPER = new ObjectMapper();
-    static {
-        MAPPER.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
-        MAPPER.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-        MAPPER.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
-        MAPPER.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, true);
-    }
-
-    private static final Configuration JSONPATH_CONFIGURATION = Configuration.builder()
-        .mappingProvider(new JacksonMappingProvider(MAPPER))
-        .jsonProvider(new JacksonJsonNodeJsonProvider(MAPPER))
+    public static final ObjectMapper MAPPER = JsonMappers.lenient();
 
-        .build();
+    /**
+     * @return The json path configuration for the {@link Mapper#objectMapper() object mapper} of {@code mapper}, which is created only once per mapper.
+     */
+    static Configuration jsonPathConfiguration(Mapper mapper) {
+        return mapper.derivedObjectMappers().jsonPathConfiguration(mapper.objectMapper());
+    }
 
     static Optional<Object> getSourceValueFromJson(Object source, Class<?> destinationClass, Field destination, List<String> path, Class<?>... groups) {
         EffectiveSource annotation = getAnnotation(source.getClass(), destinationClass, destination, groups).orElseThrow();
@@ -68,81 +76,339 @@ public class JsonUtil {
     }
 
     public static Optional<Object> getSourceJsonValue(EffectiveSource annotation, Object source, Field sourceField, Field destination) {
+        return getSourceJsonValue(annotation, PathAccessor.of(annotation.path()), source, sourceField, destination);
+    }
+
+    /**
+     * As {@link #getSourceJsonValue(EffectiveSource, Object, Field, Field)}, but with the {@link EffectiveSource#path()} already compiled.
+     */
+    public static Optional<Object> getSourceJsonValue(EffectiveSource annotation, PathAccessor path, Object source, Field sourceField, Field destination) {
+        return getSourceJsonValue(annotation, path, source, sourceField, destination, null);
+    }
+
+    /**
+     * As {@link #getSourceJsonValue(EffectiveSource, PathAccessor, Object, Field, Field)}, with a {@link #reader(Mapper, Field) reader} for the destination field.
+     * @since 0.7
+     */
+    public static Optional<Object> getSourceJsonValue(EffectiveSource annotation, PathAccessor path, Object source, Field sourceField, Field destination, ObjectReader reader) {
+        return getSourceJsonValueFromBlob(annotation, source, path.value(source, sourceField), sourceField, destination, reader);
+    }
+
+    /**
+     * As {@link #getSourceJsonValue(EffectiveSource, Object, Field, Field)}, but the json blob was obtained already.
+     * @param json The json blob (as any of the types supported by {@link #readTree(Object, Field)}), or {@code null}
+     * @param sourceField The field the json blob was read from, or {@code null} if it was obtained via a {@link org.meeuw.mapping.SourceAdapter}
+     * @since 0.7
+     */
+    public static Optional<Object> getSourceJsonValueFromBlob(EffectiveSource annotation, Object source, Object json, Field sourceField, Field destination) {
+        return getSourceJsonValueFromBlob(annotation, source, json, sourceField, destination, null);
+    }
+
+    /**
+     * As {@link #getSourceJsonValueFromBlob(EffectiveSource, Object, Object, Field, Field)}
+     * @param reader If not {@code null}, json objects and arrays are decoded with this, rather than unwrapped (and possibly sub mapped). See {@link #reader(Mapper, Field)}.
+     * @since 0.7
+     */
+    public static Optional<Object> getSourceJsonValueFromBlob(EffectiveSource annotation, Object source, Object json, Field sourceField, Field destination, ObjectReader reader) {
         if (!UNSET.equals(annotation.jsonPath())) {
             if (! UNSET.equals(annotation.jsonPointer())) {
                 throw new IllegalStateException();
             }
-            return getSourceJsonValueByPath(source, sourceField, annotation.path(), annotation.jsonPath())
-                .map(o -> ValueMapper.unwrapCollections( o, destination));
+            return getSourceJsonValueByPath(source, sourceField, json, annotation.jsonEncoding(), annotation.jsonPath())
+                .map(o -> decode(reader, o, destination));
         } else {
-            return getSourceJsonValueByPointer(source, sourceField, annotation.path(), annotation.jsonPointer())
-                .map(o -> ValueMapper.unwrapCollections( o, destination));
+            return getSourceJsonValueByPointer(source, sourceField, json, annotation.jsonEncoding(), annotation.jsonPointer())
+                .map(o -> decode(reader, o, destination));
         }
     }
 
+    /**
+     * The getter of {@link #getSourceJsonValue(EffectiveSource, PathAccessor, Object, Field, Field, ObjectReader)}, split up in its three parts, so that the
+     * json pointer or json path can be evaluated on another thread.
+     * @return The split up getter, or {@code null} if {@code annotation} has no (valid) json pointer or json path
+     * @since 0.7
+     */
+    public static MappingPlan.JsonEvaluation evaluation(EffectiveSource annotation, PathAccessor path, Field sourceField, Field destination, ObjectReader reader) {
+        final boolean isJsonPath = !UNSET.equals(annotation.jsonPath());
+        final boolean isJsonPointer = !UNSET.equals(annotation.jsonPointer());
+        if (isJsonPath == isJsonPointer) {
+            return null;
+        }
+        final String expression = isJsonPath ? annotation.jsonPath() : annotation.jsonPointer();
+        return new MappingPlan.JsonEvaluation(
+            source -> getSourceJsonValue(source, sourceField, path.value(source, sourceField), annotation.jsonEncoding()).orElse(null),
+            json -> evaluate(json, expression, isJsonPath),
+            node -> decode(reader, node, destination)
+        );
+    }
 
-    private static Optional<Object> getSourceJsonValueByPointer(Object source, Field sourceField, String[] path, String pointer) {
-
-         return getSourceJsonValue(source, sourceField, path)
-             .map(jn -> {
-                 JsonNode at = jn.at(pointer);
-
-                 return at;
-             })
-             .map(JsonUtil::unwrapJson);
+    private static Optional<JsonNode> getSourceJsonValueByPointer(Object source, Field sourceField, Object json, JsonEncoding encoding, String pointer) {
+        final JsonTape tape = tape(sourceField, json, encoding);
+        if (tape != null) {
+            return Optional.of(tape.at(pointer));
+        }
+        return getSourceJsonValue(source, sourceField, json, encoding)
+             .map(jn -> evaluate(jn, pointer, false));
     }
 
     // jsonpath would have its own cache, but it may be used by other
     // stuff. Since we know that there is a limited number of JsonPath object caused by us, we just use our hown cache, without any limitations.
     private static final Map<String, JsonPath> JSONPATH_CACHE = new ConcurrentHashMap<>();
-    private static Optional<Object> getSourceJsonValueByPath(Object source, Field sourceField, String[] path, String jsonPath) {
+    private static Optional<JsonNode> getSourceJsonValueByPath(Object source, Field sourceField, Object json, JsonEncoding encoding, String jsonPath) {
+        final JsonPointer pointer = JsonTape.simplePath(jsonPath);
+        final JsonTape tape = pointer == null ? null : tape(sourceField, json, encoding);
+        if (tape != null) {
+            JsonNode result = tape.at(pointer);
+            if (result.isMissingNode()) {
+                // like json path does
+                result = NullNode.getInstance();
+            }
+            Budgets.checkJsonPathResult(Mapper.current().budget(), result, jsonPath);
+            return Optional.of(result);
+        }
+        return getSourceJsonValue(source, sourceField, json, encoding)
+             .map(jn -> evaluate(jn, jsonPath, true));
+    }
 
-         return getSourceJsonValue(source, sourceField, path)
-             .map(jn -> getByJsonPath(jn, jsonPath))
-             .map(JsonUtil::unwrapJson);
+    /**
+     * Converts the json node found for {@code destination} to a java value. If there is a {@code reader}, objects and arrays are decoded with it. Otherwise (or if that fails) the node is {@link #unwrapJson(JsonNode) unwrapped}.
+     * @param destination The destination field, for which {@link ValueMapper#unwrapCollections(Object, Field) collections are unwrapped}, or {@code null}
+     */
+    private static Object decode(ObjectReader reader, JsonNode node, Field destination) {
+        if (node == null) {
+            return null;
+        }
+        if (reader != null && node.isContainerNode()) {
+            try {
+                return reader.readValue(node);
+            } catch (IOException | IllegalArgumentException e) {
+                log.debug("Could not decode {} as {}: {}", node, reader.getValueType(), e.getMessage());
+            }
+        }
+        if (destination != null && node.isArray()) {
+            final Containers.Container container = Containers.forField(destination);
+            if (container != null && container.isPrimitiveArray()) {
+                return container.fromJson(node);
+            }
+        }
+        final Object value = unwrapJson(node);
+        return value == null || destination == null ? value : ValueMapper.unwrapCollections(value, destination);
+    }
+
+    /**
+     * Returns an {@link ObjectReader} to decode json objects and arrays directly into the (generic) type of {@code destinationField}. That is
+     * done for arrays, collections and maps (with string keys) of elements that are not {@link Util#isMappable(Class) mappable}, and for other classes that
+     * are not mappable and not part of the JDK. Otherwise, and if a {@link Mapper#customMappers() custom mapper} applies to the field's type or its elements, or an
+     * {@link XmlAdapters xml adapter} applies to the field, the json value is unwrapped, converted and sub mapped as usual.
+     * @return The reader, or {@code null} if the field's type should not be decoded by jackson
+     * @since 0.7
+     */
+    public static ObjectReader reader(Mapper mapper, Field destinationField) {
+        final Type type = destinationField.getGenericType();
+        final Predicate<Class<?>> converted = c -> Util.isMappable(c) || mapper.customMappers().containsKey(c);
+        if ((mapper.supportsJaxbAnnotations() && XmlAdapters.forField(destinationField) != null)
+            || !decodable(type, converted)) {
+            return null;
+        }
+        final ObjectMapper objectMapper = mapper.objectMapper();
+        return objectMapper
+            .readerFor(objectMapper.getTypeFactory().constructType(type))
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * @param converted Whether values of a class are converted by the mapper itself (sub mapping or custom mappers)
+     */
+    private static boolean decodable(Type type, Predicate<Class<?>> converted) {
+        final Class<?> raw = rawClass(type);
+        if (raw == null || converted.test(raw)) {
+            return false;
+        }
+        if (raw.isArray() || Collection.class.isAssignableFrom(raw) || Map.class.isAssignableFrom(raw)) {
+            return decodableContainer(type, raw, converted);
+        }
+        return !raw.isPrimitive() && !raw.isEnum() && !raw.isInterface() && !isJdkOrJson(raw);
+    }
+
+    private static boolean decodableContainer(Type type, Class<?> raw, Predicate<Class<?>> converted) {
+        if (raw == null) {
+            return false;
+        }
+        if (raw.isArray()) {
+            final Type component = type instanceof GenericArrayType gat ? gat.getGenericComponentType() : raw.getComponentType();
+            return raw.getComponentType().isPrimitive() || decodableElement(component, converted);
+        }
+        if (!(type instanceof ParameterizedType pt)) {
+            return false;
+        }
+        final Type[] arguments = pt.getActualTypeArguments();
+        if (Map.class.isAssignableFrom(raw)) {
+            return arguments.length == 2 && arguments[0] == String.class && decodableElement(arguments[1], converted);
+        }
+        return arguments.length == 1 && decodableElement(arguments[0], converted);
+    }
+
+    private static boolean decodableElement(Type type, Predicate<Class<?>> converted) {
+        final Class<?> raw = rawClass(type);
+        if (raw == null || raw == Object.class || converted.test(raw)) {
+            return false;
+        }
+        if (raw.isArray() || Collection.class.isAssignableFrom(raw) || Map.class.isAssignableFrom(raw)) {
+            return decodableContainer(type, raw, converted);
+        }
+        if (raw == String.class || raw.isEnum() || raw.isPrimitive() || Number.class.isAssignableFrom(raw) || raw == Boolean.class || raw == Character.class) {
+            return true;
+        }
+        return !raw.isInterface() && !isJdkOrJson(raw);
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class<?> c) {
+            return c;
+        }
+        if (type instanceof ParameterizedType pt && pt.getRawType() instanceof Class<?> c) {
+            return c;
+        }
+        if (type instanceof GenericArrayType gat) {
+            final Class<?> component = rawClass(gat.getGenericComponentType());
+            return component == null ? null : component.arrayType();
+        }
+        return null;
+    }
+
+    /**
+     * Classes of the JDK (like {@link java.time.LocalDate}) may need jackson modules to be decoded, and json nodes are unwrapped anyway.
+     */
+    private static boolean isJdkOrJson(Class<?> clazz) {
+        final String name = clazz.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || JsonNode.class.isAssignableFrom(clazz);
+    }
+
+    /**
+     * Evaluates a json pointer or json path, or takes the result from {@link #SHARED_EVALUATIONS} if that is active.
+     */
+    private static JsonNode evaluate(JsonNode json, String expression, boolean isJsonPath) {
+        final Map<Evaluation, JsonNode> shared = SHARED_EVALUATIONS.get();
+        if (shared != null) {
+            return shared.computeIfAbsent(new Evaluation(json, expression, isJsonPath), e -> evaluateUnshared(json, expression, isJsonPath));
+        }
+        return evaluateUnshared(json, expression, isJsonPath);
+    }
+
+    private static JsonNode evaluateUnshared(JsonNode json, String expression, boolean isJsonPath) {
+        return isJsonPath ? getByJsonPath(json, expression) : json.at(expression);
     }
 
     private static JsonNode getByJsonPath(JsonNode jn, String jsonPath) {
+        final Mapper mapper = Mapper.current();
+        final ObjectMapper objectMapper = mapper.objectMapper();
         try {
-            return JsonPath.using(JSONPATH_CONFIGURATION).parse(jn).read(JSONPATH_CACHE.computeIfAbsent(jsonPath,
+            final JsonNode result = JsonPath.using(jsonPathConfiguration(mapper)).parse(jn).read(JSONPATH_CACHE.computeIfAbsent(jsonPath,
                 JsonPath::compile));
+            Budgets.checkJsonPathResult(mapper.budget(), result, jsonPath);
+            return result;
         } catch (PathNotFoundException pathNotFoundException) {
             log.debug(pathNotFoundException.getMessage());
-            return MAPPER.nullNode();
+            return objectMapper.nullNode();
         }
     }
 
 
-    record Key(Object object) {
+    /**
+     * Key for the json cache. Since mappers with different {@link Mapper#objectMapper() object mappers} (or {@link Mapper#budget() budgets}) may parse the same blob differently, that is part of it.
+     */
+    record Key(Object object, ObjectMapper objectMapper) {
         @Override
         public boolean equals(Object object) {
-            return object instanceof Key other && this.object == other.object;
+            return object instanceof Key other && this.object == other.object && this.objectMapper == other.objectMapper;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(object) + System.identityHashCode(objectMapper);
         }
     }
 
     private static final ThreadLocal<Map<Key, JsonNode>> JSON_CACHE = ThreadLocal.withInitial(HashMap::new);
 
+    private static final ThreadLocal<Map<Key, JsonTape>> TAPE_CACHE = ThreadLocal.withInitial(HashMap::new);
+
 
     public static void clearCache() {
         JSON_CACHE.get().clear();
+        TAPE_CACHE.get().clear();
     }
 
-    static Optional<JsonNode> getSourceJsonValue(Object source, Field sourceField, String... path) {
+    /**
+     * Returns the (cached) {@link JsonTape structural index} of a json blob, if the current mapper {@link Mapper#indexesJson() indexes json}, and the blob can be indexed.
+     * Blobs must then be textual {@code byte[]}s or {@link String}s. Since {@link Mapper#binaryWriteBack() writing back} needs the tree, blobs are not indexed if that is configured.
+     * @return The index, or {@code null} if the blob must be parsed into a tree
+     */
+    private static JsonTape tape(Field sourceField, Object json, JsonEncoding encoding) {
+        final Mapper mapper = Mapper.current();
+        if (!mapper.indexesJson() || mapper.binaryWriteBack() != null || !(json instanceof byte[] || json instanceof String)) {
+            return null;
+        }
+        if ((encoding == JsonEncoding.AUTO ? detectEncoding(json) : encoding) != JsonEncoding.TEXT) {
+            return null;
+        }
+        final ObjectMapper objectMapper = Budgets.constrain(mapper, mapper.objectMapper());
+        final Key key = new Key(json, objectMapper);
+        final Map<Key, JsonTape> cache = TAPE_CACHE.get();
+        JsonTape tape = cache.get(key);
+        if (tape == null) {
+            Budgets.checkBlobSize(mapper.budget(), json, sourceField);
+            tape = JsonTape.index(json, objectMapper, sourceField);
+            cache.put(key, tape);
+        }
+        return tape == JsonTape.UNINDEXABLE ? null : tape;
+    }
+
+    /**
+     * @param json The json tree, compared by identity
+     */
+    record Evaluation(JsonNode json, String expression, boolean isJsonPath) {
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Evaluation other && this.json == other.json && this.isJsonPath == other.isJsonPath && this.expression.equals(other.expression);
+        }
 
-        return Util.getSourceValue(source, sourceField, path)
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(json) + expression.hashCode();
+        }
+    }
+
+    /**
+     * When mapping one source to several destinations, the results of json pointers and json paths on the same json trees can be shared too.
+     */
+    private static final ThreadLocal<Map<Evaluation, JsonNode>> SHARED_EVALUATIONS = new ThreadLocal<>();
+
+    /**
+     * Until {@link #stopSharingEvaluations()}, the results of json pointers and json paths will be remembered (for the current thread).
+     */
+    public static void startSharingEvaluations() {
+        SHARED_EVALUATIONS.set(new HashMap<>());
+    }
+
+    public static void stopSharingEvaluations() {
+        SHARED_EVALUATIONS.remove();
+    }
+
+    static Optional<JsonNode> getSourceJsonValue(Object source, Field sourceField, Object blob, JsonEncoding encoding) {
+
+        return Optional.ofNullable(blob)
             .map(json -> {
-                Key k = new Key(json);
+                final Mapper mapper = Mapper.current();
+                final ObjectMapper objectMapper = mapper.objectMapper();
+                // so that a tree parsed without limits is not reused by a mapper with a budget
+                Key k = new Key(json, Budgets.constrain(mapper, objectMapper));
                 return  JSON_CACHE.get().computeIfAbsent(k, (key) -> {
                     try {
-                        if (json instanceof byte[] bytes) {
-                            return MAPPER.readTree(bytes);
-                        } else if (json instanceof String string) {
-                            return MAPPER.readTree(string);
-                        } else if (json instanceof JsonNode n) {
-                            return n;
-                        } else {
-                            throw new IllegalStateException("%s could not be mapped to json %s -> %s".formatted(sourceField, json, json));
-                        }
+                        return parse(objectMapper, source, sourceField, json, encoding);
+                    } catch (StreamConstraintsException sce) {
+                        final BudgetExceededException exceeded = Budgets.exceeded(mapper.budget(), sce, sourceField);
+                        throw exceeded == null ? new IllegalStateException(sce.getMessage(), sce) : exceeded;
                     } catch (IOException e) {
                         throw new IllegalStateException(e.getMessage(), e);
                     }
@@ -150,8 +416,166 @@ public class JsonUtil {
             });
    }
 
+    private static JsonNode parse(ObjectMapper objectMapper, Object source, Field sourceField, Object json, JsonEncoding encoding) throws IOException {
+        if (encoding == JsonEncoding.AUTO) {
+            encoding = detectEncoding(json);
+        }
+        final Mapper mapper = Mapper.current();
+        Budgets.checkBlobSize(mapper.budget(), json, sourceField);
+        JsonNode result = readTree(objectMapper, json, encoding, sourceField, mapper);
+        if (encoding == JsonEncoding.TEXT && !(json instanceof JsonNode)) {
+            if (mapper.binaryWriteBack() != null) {
+                try {
+                    byte[] bytes = objectMapper(mapper.binaryWriteBackEncoding()).writeValueAsBytes(result);
+                    mapper.binaryWriteBack().accept(new BinaryBlob(source, sourceField, json, mapper.binaryWriteBackEncoding(), bytes));
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not write back {} of {}: {}", sourceField, source, e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    static JsonNode readTree(Object json, Field sourceField) throws IOException {
+        return readTree(Mapper.current().objectMapper(), json, detectEncoding(json), sourceField, null);
+    }
+
+    /**
+     * Parses the value of a json-bearing field. Besides {@code byte[]}, {@link String} and {@link JsonNode}, this supports
+     * {@link ByteBuffer} (heap and direct), other {@link CharSequence}s, {@link InputStream}, {@link Reader}, {@link Supplier}s of those,
+     * and {@link Path} (which will be memory mapped). All of these are parsed in place, without copying them first.
+     * @param textMapper The object mapper to parse textual json with
+     * @param budgeted If not {@code null}, the mapper of which the {@link Mapper#budget() budget} limits the size and nesting depth of the json
+     */
+    static JsonNode readTree(ObjectMapper textMapper, Object json, JsonEncoding encoding, Field sourceField, Mapper budgeted) throws IOException {
+        final ObjectMapper base = encoding == JsonEncoding.TEXT ? textMapper : objectMapper(encoding);
+        final ObjectMapper mapper = budgeted == null ? base : Budgets.constrain(budgeted, base);
+        if (json instanceof byte[] bytes) {
+            return mapper.readTree(bytes);
+        } else if (json instanceof String string) {
+            return mapper.readTree(string);
+        } else if (json instanceof JsonNode n) {
+            return n;
+        } else if (json instanceof ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                return mapper.readTree(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+                return mapper.readTree(new ByteBufferBackedInputStream(buffer.duplicate()));
+            }
+        } else if (json instanceof CharSequence charSequence) {
+            return mapper.readTree(new CharSequenceReader(charSequence));
+        } else if (json instanceof InputStream inputStream) {
+            return mapper.readTree(inputStream);
+        } else if (json instanceof Reader reader) {
+            return mapper.readTree(reader);
+        } else if (json instanceof Path file) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return mapper.readTree(new JsonStreams.MappedRegionInputStream(channel, 0, channel.size()));
+            }
+        } else if (json instanceof Supplier<?> supplier) {
+            return readTree(textMapper, supplier.get(), encoding, sourceField, budgeted);
+        } else {
+            throw new IllegalStateException("%s could not be mapped to json %s -> %s".formatted(sourceField, json, json));
+        }
+    }
+
+    /**
+     * Recognizes Smile (by its header) and CBOR (by its 'self describe' tag, or because it starts with an array or map) in {@code byte[]}s and {@link ByteBuffer}s.
+     * Neither of these can be the first byte of an UTF-8 encoded json text. Everything else is assumed to be textual json.
+     */
+    static JsonEncoding detectEncoding(Object json) {
+        if (json instanceof byte[] bytes) {
+            return detectEncoding(bytes.length, i -> bytes[i]);
+        } else if (json instanceof ByteBuffer buffer) {
+            return detectEncoding(buffer.remaining(), i -> buffer.get(buffer.position() + i));
+        }
+        return JsonEncoding.TEXT;
+    }
+
+    private static JsonEncoding detectEncoding(int length, IntUnaryOperator bytes) {
+        if (length == 0) {
+            return JsonEncoding.TEXT;
+        }
+        int first = bytes.applyAsInt(0) & 0xff;
+        if (length >= 3) {
+            int second = bytes.applyAsInt(1) & 0xff;
+            int third = bytes.applyAsInt(2) & 0xff;
+            if (first == ':' && second == ')' && third == '\n') {
+                return JsonEncoding.SMILE;
+            }
+            if (first == 0xd9 && second == 0xd9 && third == 0xf7) {
+                return JsonEncoding.CBOR;
+            }
+        }
+        if (first >= 0x80 && first <= 0xbf) {
+            // major type 4 (array) or 5 (map)
+            return JsonEncoding.CBOR;
+        }
+        return JsonEncoding.TEXT;
+    }
+
+    static ObjectMapper objectMapper(JsonEncoding encoding) {
+        try {
+            return switch (encoding) {
+                case SMILE -> SmileHolder.MAPPER;
+                case CBOR -> CborHolder.MAPPER;
+                default -> MAPPER;
+            };
+        } catch (NoClassDefFoundError e) {
+            throw new IllegalStateException("For %s, jackson-dataformat-%s is needed on the class path".formatted(encoding, encoding.name().toLowerCase()), e);
+        }
+    }
+
+    /**
+     * Holders, so that the optional dependencies are only loaded when needed.
+     */
+    private static class SmileHolder {
+        static final ObjectMapper MAPPER = new ObjectMapper(new SmileFactory());
+    }
+
+    private static class CborHolder {
+        static final ObjectMapper MAPPER = new ObjectMapper(new CBORFactory());
+    }
+
+    /**
+     * A {@link Reader} on a {@link CharSequence}, so that e.g. a {@link StringBuilder} needs not be converted to a {@link String} first.
+     */
+    static class CharSequenceReader extends Reader {
+        private final CharSequence charSequence;
+        private int position = 0;
+
+        CharSequenceReader(CharSequence charSequence) {
+            this.charSequence = charSequence;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position >= charSequence.length()) {
+                return -1;
+            }
+            int count = Math.min(length, charSequence.length() - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = charSequence.charAt(position++);
+            }
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
 
    public static Function<Object, Optional<Object>> valueFromJsonGetter(EffectiveSource s) {
+       return valueFromJsonGetter(s, null);
+   }
+
+    /**
+     * As {@link #valueFromJsonGetter(EffectiveSource)}
+     * @param reader If not {@code null}, json objects and arrays are decoded with this. See {@link #reader(Mapper, Field)}.
+     * @since 0.7
+     */
+   public static Function<Object, Optional<Object>> valueFromJsonGetter(EffectiveSource s, ObjectReader reader) {
        UnaryOperator<JsonNode> withField = UnaryOperator.identity();
        if (! UNSET.equals(s.field())) {
            withField = o -> o.get(s.field());
@@ -164,18 +588,18 @@ public class JsonUtil {
        if (UNSET.equals(s.jsonPointer()) && UNSET.equals(s.jsonPath())) {
            return o -> {
                JsonNode value = finalWithFieldAndPath.apply((JsonNode) o);
-               return Optional.ofNullable(unwrapJson(value));
+               return Optional.ofNullable(decode(reader, value, null));
            };
        } else if (! UNSET.equals(s.jsonPointer())) {
            return o -> {
                JsonNode value = finalWithFieldAndPath.apply((JsonNode) o);
-               return Optional.ofNullable(unwrapJson(value.at(s.jsonPointer())));
+               return Optional.ofNullable(decode(reader, value.at(s.jsonPointer()), null));
            };
        } else {
             return o -> {
                JsonNode value = finalWithFieldAndPath.apply((JsonNode) o);
-               return Optional.ofNullable(unwrapJson(
-                   getByJsonPath(value, s.jsonPath())));
+               return Optional.ofNullable(decode(reader,
+                   getByJsonPath(value, s.jsonPath()), null));
             };
        }
    }
@@ -210,10 +634,10 @@ public class JsonUtil {
             return jsonNode.asDouble();
         }
         if (jsonNode.isArray()) {
-            List<Object> result = new ArrayList<>();
-            jsonNode.forEach(e -> {
+            List<Object> result = new ArrayList<>(jsonNode.size());
+            for (JsonNode e : jsonNode) {
                 result.add(unwrapJson(e));
-            });
+            }
             return result;
         }
         if (jsonNode.isObject()) {
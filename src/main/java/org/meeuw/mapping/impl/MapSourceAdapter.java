@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.meeuw.mapping.SourceAdapter;
+
+/**
+ * Reads values from {@link Map}s, by key.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public class MapSourceAdapter implements SourceAdapter {
+
+    @Override
+    public boolean supports(Class<?> sourceClass) {
+        return Map.class.isAssignableFrom(sourceClass);
+    }
+
+    @Override
+    public Optional<Function<Object, Object>> getter(Class<?> sourceClass, String name) {
+        return Optional.of(map -> ((Map<?, ?>) map).get(name));
+    }
+}
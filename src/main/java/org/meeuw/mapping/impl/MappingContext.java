@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.*;
+
+import org.meeuw.mapping.BudgetExceededException;
+import org.meeuw.mapping.DestinationPool;
+import org.meeuw.mapping.MapException;
+import org.meeuw.mapping.Mapper;
+import org.meeuw.mapping.annotations.Interned;
+
+/**
+ * The state of one (top level) call to {@link Mapper#map(Object, Object, Class[])}, for the current thread.
+ * <p>
+ * It contains an identity map from (source object, destination class) to the object it was mapped to. Every source object
+ * is therefore mapped only once to a certain class, objects that are referenced from several places stay shared, and cycles in the
+ * source graph resolve to cycles in the destination graph.
+ * <p>
+ * Sub mappings are not done recursively. A sub mapped object is created and registered immediately, but it is filled only
+ * when the work stack is {@link #drain() drained}, which happens at the end of the top level call. So deep graphs don't exhaust the stack.
+ * <p>
+ * Unfilled objects are only ever written directly in destination fields. Before a value is given to anything that may look at it (a setter or builder method,
+ * a custom mapper or an xml adapter), the work stack is drained first, so such code always sees complete objects. For such fields deep graphs are
+ * mapped recursively after all.
+ * <p>
+ * The instance per thread is reused, and nothing is allocated unless sub mapping actually happens. When {@link #reusing() reusing} a destination, sub
+ * mapped objects are taken from the {@link Mapper#destinationPool() pool} of the mapper, if it has one.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public final class MappingContext {
+
+    private static final ThreadLocal<MappingContext> CONTEXT = ThreadLocal.withInitial(MappingContext::new);
+
+    private final Map<Key, Object> mapped = new HashMap<>();
+
+    private final Deque<Runnable> work = new ArrayDeque<>();
+
+    private int depth = 0;
+
+    private boolean reusing = false;
+
+    private long start;
+    private long maxNanos = -1;
+
+    // the root mapping is not put in the map, to avoid allocating if there are no sub mappings at all
+    private Object rootSource;
+    private Class<?> rootDestinationClass;
+    private Object rootDestination;
+
+    private MappingContext() {
+    }
+
+    /**
+     * Registers the start of a mapping of {@code source} to {@code destination}
+     * @return The context for the current thread, on which {@link #leave()} must be called when done.
+     */
+    public static MappingContext enter(Object source, Object destination, Class<?> destinationClass) {
+        final MappingContext context = CONTEXT.get();
+        if (context.depth++ == 0) {
+            context.rootSource = source;
+            context.rootDestinationClass = destinationClass;
+            context.rootDestination = destination;
+        } else {
+            context.mapped.putIfAbsent(new Key(source, destinationClass), destination);
+        }
+        return context;
+    }
+
+    /**
+     * Registers the end of the mapping started with {@link #enter(Object, Object, Class)}. When the top level mapping ends, the context is cleared.
+     */
+    public void leave() {
+        if (--depth == 0) {
+            reusing = false;
+            maxNanos = -1;
+            rootSource = null;
+            rootDestinationClass = null;
+            rootDestination = null;
+            if (!mapped.isEmpty()) {
+                mapped.clear();
+            }
+            if (!work.isEmpty()) {
+                // only if something went wrong
+                work.clear();
+            }
+        }
+    }
+
+    /**
+     * Starts measuring the wall time of the current top level mapping, which must not exceed {@code maxTime}. See {@link #checkTime()}.
+     * @param maxTime The maximal time, or {@code null}
+     */
+    public void startClock(Duration maxTime) {
+        if (maxTime != null && depth == 1) {
+            start = System.nanoTime();
+            maxNanos = maxTime.toNanos();
+        }
+    }
+
+    /**
+     * @throws BudgetExceededException If the current top level mapping takes longer than was allowed by {@link #startClock(Duration)}.
+     */
+    public static void checkTime() {
+        final MappingContext context = CONTEXT.get();
+        if (context.maxNanos >= 0) {
+            final long elapsed = System.nanoTime() - context.start;
+            if (elapsed > context.maxNanos) {
+                throw new BudgetExceededException(BudgetExceededException.Limit.TIME, context.maxNanos, elapsed,
+                    "mapping of " + context.rootSource.getClass().getSimpleName() + " (ns)");
+            }
+        }
+    }
+
+    /**
+     * Marks the current top level mapping as one into a recycled destination (see {@link Mapper#mapInto(Object, Object, Class[])}), until it is {@link #leave() left}.
+     */
+    public void startReusing() {
+        reusing = true;
+    }
+
+    /**
+     * @return Whether the current thread is mapping into a recycled destination. Its collections and maps are then refilled, rather than replaced.
+     */
+    public static boolean reusing() {
+        return CONTEXT.get().reusing;
+    }
+
+    /**
+     * Returns the object {@code source} was already mapped to, or creates a new instance of {@code destinationClass}, which will be
+     * filled from {@code source} when the work stack is {@link #drain() drained}.
+     */
+    public static <T> T subMap(Mapper mapper, Object source, Class<T> destinationClass, Class<?>... groups) {
+        final MappingContext context = CONTEXT.get();
+        final T existing = context.lookup(source, destinationClass);
+        if (existing != null) {
+            return existing;
+        }
+        final T destination = context.newInstance(mapper, destinationClass);
+        if (context.depth == 0) {
+            // not called from Mapper#map, do it right away.
+            enter(source, destination, destinationClass);
+            try {
+                mapper.subMap(source, destination, destinationClass, groups);
+                context.drain();
+            } finally {
+                context.leave();
+            }
+        } else {
+            context.mapped.put(new Key(source, destinationClass), destination);
+            context.work.push(() -> mapper.subMap(source, destination, destinationClass, groups));
+        }
+        return destination;
+    }
+
+    /**
+     * Performs all pending sub mappings, including the ones that are added while doing so. A failing sub mapping is logged, unless it exceeded the {@link org.meeuw.mapping.MappingBudget budget}.
+     */
+    public void drain() {
+        Runnable task;
+        while ((task = work.poll()) != null) {
+            try {
+                task.run();
+            } catch (BudgetExceededException bee) {
+                throw bee;
+            } catch (MapException me) {
+                log.warn(me.getMessage(), me);
+            }
+        }
+    }
+
+    /**
+     * Drains the work stack of the current thread.
+     * @see #drain()
+     */
+    public static void drainCurrent() {
+        CONTEXT.get().drain();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(Object source, Class<T> destinationClass) {
+        if (depth == 0) {
+            return null;
+        }
+        if (source == rootSource && destinationClass == rootDestinationClass) {
+            return (T) rootDestination;
+        }
+        return (T) mapped.get(new Key(source, destinationClass));
+    }
+
+    private <T> T newInstance(Mapper mapper, Class<T> destinationClass) {
+        try {
+            final DestinationPool pool = mapper.destinationPool();
+            if (reusing && pool != null && !(mapper.internCache() != null && destinationClass.isAnnotationPresent(Interned.class))) {
+                // interned objects are shared, so they must never be given back
+                return pool.acquire(destinationClass);
+            }
+            return destinationClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new MapException(e);
+        }
+    }
+
+    /**
+     * Key for the identity map. Sources are compared by identity, not by {@link Object#equals(Object)}.
+     */
+    private record Key(Object source, Class<?> destinationClass) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && other.source == source && other.destinationClass == destinationClass;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(source) + destinationClass.hashCode();
+        }
+    }
+}
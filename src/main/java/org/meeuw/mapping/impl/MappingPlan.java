@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * The result of resolving all {@link org.meeuw.mapping.annotations.Source} annotations of a destination class, for a certain source class. It consists of
+ * one {@link Step} for every destination field that can be mapped.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public class MappingPlan {
+
+    @Getter
+    private final Class<?> sourceClass;
+    @Getter
+    private final Class<?> destinationClass;
+    @Getter
+    private final List<Step> steps;
+
+    private final Step[] stepArray;
+
+    // moving averages of the sampled times of the steps. Updates may be lost, which doesn't matter
+    private final long[] sampledNanos;
+
+    private final Map<BitSet, MappingPlan> restricted = new ConcurrentHashMap<>();
+
+    private volatile Map<String, Field> destinationProperties;
+
+    public MappingPlan(Class<?> sourceClass, Class<?> destinationClass, List<Step> steps) {
+        this.sourceClass = sourceClass;
+        this.destinationClass = destinationClass;
+        this.steps = List.copyOf(steps);
+        this.stepArray = steps.toArray(new Step[0]);
+        this.sampledNanos = new long[stepArray.length];
+    }
+
+    /**
+     * @return The steps as an array, which can be iterated without creating an {@link Iterator}. Must not be modified.
+     */
+    public Step[] stepArray() {
+        return stepArray;
+    }
+
+    /**
+     * Registers the time that step {@code i} of {@link #stepArray()} took, when it was {@link org.meeuw.mapping.MappingSampler sampled}.
+     */
+    public void sampled(int i, long nanos) {
+        final long previous = sampledNanos[i];
+        sampledNanos[i] = previous == 0 ? nanos : previous - (previous >> 3) + (nanos >> 3);
+    }
+
+    /**
+     * @return The (moving) average of the sampled times of step {@code i} of {@link #stepArray()}, or {@code 0} if it was never sampled
+     */
+    public long sampledNanos(int i) {
+        return sampledNanos[i];
+    }
+
+    /**
+     * @return The destination fields that will be mapped, by name
+     */
+    public Map<String, Field> destinationProperties() {
+        Map<String, Field> result = destinationProperties;
+        if (result == null) {
+            Map<String, Field> map = new LinkedHashMap<>();
+            for (Step step : steps) {
+                map.put(step.destinationField().getName(), step.destinationField());
+            }
+            result = destinationProperties = Collections.unmodifiableMap(map);
+        }
+        return result;
+    }
+
+    /**
+     * @param mask A bitset over the {@link Util#destinationFields(Class) fields} of the destination class
+     * @return A (cached) plan with only the steps for the fields in the mask
+     */
+    public MappingPlan restrict(BitSet mask) {
+        return restricted.computeIfAbsent(mask, m -> new MappingPlan(sourceClass, destinationClass,
+            steps.stream().filter(s -> m.get(s.index())).toList()
+        ));
+    }
+
+    @Override
+    public String toString() {
+        return sourceClass.getSimpleName() + "->" + destinationClass.getSimpleName() + steps.stream().map(s -> s.destinationField().getName()).toList();
+    }
+
+    /**
+     * @param index The index of the destination field in {@link Util#destinationFields(Class)}
+     * @param destinationField The field to fill
+     * @param source The matched source annotation
+     * @param getter Gets the value from a source object
+     * @param setter Sets a value in a destination object
+     * @param copier If not {@code null}, the value can be copied directly from source to destination, without any conversion (nor boxing). {@code getter} and {@code setter} are then not needed.
+     * @param json If not {@code null}, {@code getter} split up, so that it can be evaluated concurrently (only if the mapper has {@link org.meeuw.mapping.ExpensiveFields})
+     * @param expensive Whether the field is annotated {@link org.meeuw.mapping.annotations.Expensive}
+     */
+    public record Step(
+        int index,
+        Field destinationField,
+        EffectiveSource source,
+        ValueGetter getter,
+        BiConsumer<Object, Object> setter,
+        Copier copier,
+        JsonEvaluation json,
+        boolean expensive) {
+    }
+
+    /**
+     * For values obtained via a json pointer or json path, the {@link ValueGetter} split up in three parts.
+     * @param tree Obtains the parsed json from the source object. Parsed json is cached per thread, so this must happen on the calling thread.
+     * @param evaluate Evaluates the json pointer or json path on it. This only reads the json, so it can happen on any thread.
+     * @param decode Converts the result to the value to set. This may sub map, so it must happen on the calling thread.
+     */
+    public record JsonEvaluation(
+        ValueGetter tree,
+        UnaryOperator<JsonNode> evaluate,
+        Function<JsonNode, Object> decode) {
+    }
+
+    /**
+     * Gets a value from a source object. Rather than an {@link Optional}, this returns {@code null} if there is no value, so that it needs not allocate anything.
+     */
+    @FunctionalInterface
+    public interface ValueGetter {
+        Object get(Object source);
+    }
+
+    /**
+     * Copies a value from a source object to a destination object directly.
+     */
+    @FunctionalInterface
+    public interface Copier {
+        void copy(Object source, Object destination) throws IllegalAccessException;
+    }
+}
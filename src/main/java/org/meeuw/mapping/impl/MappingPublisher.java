@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.meeuw.mapping.Mapper;
+
+/**
+ * Implementation of {@link Mapper#mapPublisher(Flow.Publisher, Class, int, Executor, boolean, Class[])}. A {@link Flow.Publisher} that maps the items of another publisher.
+ * <p>
+ * At most {@code concurrency} items are requested from the source publisher that are not yet delivered, and never more than the subscriber requested.
+ * The mappings are executed on an {@link Executor}. If a mapping fails, or the source publisher signals an error, the subscriber receives {@link Flow.Subscriber#onError(Throwable)}.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public class MappingPublisher<T> implements Flow.Publisher<T> {
+
+    private final Mapper mapper;
+    private final Flow.Publisher<?> sources;
+    private final Class<T> destinationClass;
+    private final int concurrency;
+    private final Executor executor;
+    private final boolean ordered;
+    private final Class<?>[] groups;
+
+    public MappingPublisher(Mapper mapper, Flow.Publisher<?> sources, Class<T> destinationClass, int concurrency, Executor executor, boolean ordered, Class<?>... groups) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+        }
+        this.mapper = mapper;
+        this.sources = sources;
+        this.destinationClass = destinationClass;
+        this.concurrency = concurrency;
+        this.executor = executor;
+        this.ordered = ordered;
+        this.groups = groups;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        sources.subscribe(new MappingSubscription(subscriber));
+    }
+
+    /**
+     * Subscriber to the source publisher, and subscription for the subscriber of the mapped objects.
+     */
+    private final class MappingSubscription implements Flow.Subscriber<Object>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> downstream;
+        private Flow.Subscription upstream;
+
+        /**
+         * Makes sure that only one thread at a time signals the subscriber.
+         */
+        private final AtomicInteger wip = new AtomicInteger();
+
+        // the fields below are guarded by 'this'
+        private long demand;
+        private long outstanding;
+        private int inFlight;
+        private long nextSequence;
+        private long nextToEmit;
+        private final Map<Long, T> completed = new HashMap<>();
+        private final Deque<T> ready = new ArrayDeque<>();
+        private boolean upstreamDone;
+        private Throwable error;
+        private boolean terminated;
+
+        MappingSubscription(Flow.Subscriber<? super T> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (upstream != null) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(Object item) {
+            final long sequence;
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                outstanding--;
+                inFlight++;
+                sequence = nextSequence++;
+            }
+            try {
+                executor.execute(() -> map(sequence, item));
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void map(long sequence, Object item) {
+            final T result;
+            try {
+                result = mapper.map(item, destinationClass, groups);
+            } catch (RuntimeException | Error e) {
+                fail(e);
+                return;
+            }
+            synchronized (this) {
+                if (ordered) {
+                    completed.put(sequence, result);
+                } else {
+                    ready.add(result);
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (this) {
+                upstreamDone = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Requested number of items must be positive: " + n));
+                return;
+            }
+            synchronized (this) {
+                demand += n;
+                if (demand < 0) {
+                    // overflow, which means unbounded
+                    demand = Long.MAX_VALUE;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                terminated = true;
+                clear();
+            }
+            upstream.cancel();
+        }
+
+        private void fail(Throwable throwable) {
+            synchronized (this) {
+                if (error == null) {
+                    error = throwable;
+                }
+            }
+            drain();
+        }
+
+        private T poll() {
+            if (ordered) {
+                final T next = completed.remove(nextToEmit);
+                if (next != null) {
+                    nextToEmit++;
+                }
+                return next;
+            } else {
+                return ready.poll();
+            }
+        }
+
+        private void clear() {
+            completed.clear();
+            ready.clear();
+        }
+
+        /**
+         * Delivers whatever can be delivered, and requests more from upstream if possible. Only one thread at a time does this, and a thread that
+         * finds another one busy just makes it loop once more.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (true) {
+                    T next = null;
+                    Throwable failure = null;
+                    boolean complete = false;
+                    long toRequest = 0;
+                    synchronized (this) {
+                        if (terminated) {
+                            break;
+                        }
+                        if (error != null) {
+                            terminated = true;
+                            failure = error;
+                            clear();
+                        } else if (demand > 0 && (next = poll()) != null) {
+                            if (demand != Long.MAX_VALUE) {
+                                demand--;
+                            }
+                            inFlight--;
+                        } else if (upstreamDone && inFlight == 0) {
+                            terminated = true;
+                            complete = true;
+                        } else if (!upstreamDone) {
+                            toRequest = Math.min(
+                                concurrency - inFlight - outstanding,
+                                demand - inFlight - outstanding
+                            );
+                            if (toRequest > 0) {
+                                outstanding += toRequest;
+                            }
+                        }
+                    }
+                    if (failure != null) {
+                        upstream.cancel();
+                        downstream.onError(failure);
+                        break;
+                    }
+                    if (complete) {
+                        downstream.onComplete();
+                        break;
+                    }
+                    if (next != null) {
+                        downstream.onNext(next);
+                        continue;
+                    }
+                    if (toRequest > 0) {
+                        upstream.request(toRequest);
+                    }
+                    break;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
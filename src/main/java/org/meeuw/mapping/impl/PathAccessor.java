@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.meeuw.mapping.annotations.Source;
+
+/**
+ * A compiled version of {@link Source#path()}. Every element of the path is a {@link Step}, which keeps a small inline
+ * cache of the fields it resolved, keyed by the runtime class of the value it was applied to. Only when it sees more than
+ * {@link #MAX_POLYMORPHISM} different classes, it falls back to {@link Util#getSourceField(Class, String)}, which performs
+ * the full search through the superclasses (and has its own cache).
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public class PathAccessor {
+
+    /**
+     * The number of different runtime classes a step remembers, before it becomes 'megamorphic'
+     */
+    static final int MAX_POLYMORPHISM = 4;
+
+    private static final PathAccessor EMPTY = new PathAccessor(new String[0]);
+
+    private static final Map<List<String>, PathAccessor> CACHE = new ConcurrentHashMap<>();
+
+    private final Step[] steps;
+
+    private PathAccessor(String[] path) {
+        this.steps = new Step[path.length];
+        for (int i = 0; i < path.length; i++) {
+            steps[i] = new Step(path[i]);
+        }
+    }
+
+    /**
+     * @param path The names of the fields to follow
+     * @return The (cached) compiled accessor for the given path
+     */
+    public static PathAccessor of(String... path) {
+        if (path.length == 0) {
+            return EMPTY;
+        }
+        return CACHE.computeIfAbsent(List.of(path), p -> new PathAccessor(path));
+    }
+
+    /**
+     * Gets the value of {@code sourceField} in {@code source}, and follows the path from there.
+     * @param source The source object
+     * @param sourceField The field in the source object, which must be accessible already
+     * @return The value found at the end of the path, or {@link Optional#empty()} if it is {@code null} or could not be found.
+     */
+    public Optional<Object> get(Object source, Field sourceField) {
+        return Optional.ofNullable(value(source, sourceField));
+    }
+
+    /**
+     * As {@link #get(Object, Field)}, but returns {@code null} rather than an empty optional
+     */
+    public Object value(Object source, Field sourceField) {
+        try {
+            return followValue(sourceField.get(source));
+        } catch (IllegalAccessException e) {
+            log.warn(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Follows the path, starting at the given value
+     * @param value The value to start at
+     * @return The value found at the end of the path, or {@link Optional#empty()} if it is {@code null} or could not be found.
+     */
+    public Optional<Object> follow(Object value) {
+        return Optional.ofNullable(followValue(value));
+    }
+
+    /**
+     * As {@link #follow(Object)}, but returns {@code null} rather than an empty optional
+     */
+    public Object followValue(Object value) {
+        try {
+            for (Step step : steps) {
+                if (value == null) {
+                    break;
+                }
+                Field field = step.fieldFor(value.getClass());
+                if (field == null) {
+                    log.warn("No field '{}' found in {}", step.name, value.getClass());
+                    return null;
+                }
+                value = field.get(value);
+            }
+            return value;
+        } catch (IllegalAccessException e) {
+            log.warn(e.getMessage());
+            return null;
+        }
+    }
+
+    public int length() {
+        return steps.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Step step : steps) {
+            if (!builder.isEmpty()) {
+                builder.append('.');
+            }
+            builder.append(step.name);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * One element of the path, with its inline cache.
+     */
+    static final class Step {
+        private final String name;
+
+        /**
+         * Copy on write, so reading it needs no locking.
+         */
+        private volatile Entry[] entries = new Entry[0];
+
+        Step(String name) {
+            this.name = name;
+        }
+
+        Field fieldFor(Class<?> clazz) {
+            final Entry[] current = entries;
+            for (Entry entry : current) {
+                if (entry.clazz == clazz) {
+                    return entry.field;
+                }
+            }
+            final Field field = Util.getSourceField(clazz, name).orElse(null);
+            if (current.length < MAX_POLYMORPHISM) {
+                Entry[] grown = Arrays.copyOf(current, current.length + 1);
+                grown[current.length] = new Entry(clazz, field);
+                entries = grown;
+            }
+            return field;
+        }
+    }
+
+    /**
+     * @param field The resolved field, or {@code null} if the class doesn't have one
+     */
+    private record Entry(Class<?> clazz, Field field) {
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.meeuw.mapping.SourceAdapter;
+
+/**
+ * Reads values from {@link Record}s, using the accessor methods of their components. Unlike reading the private fields, that also works if the record is in a module that is not open.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public class RecordSourceAdapter implements SourceAdapter {
+
+    @Override
+    public boolean supports(Class<?> sourceClass) {
+        return sourceClass.isRecord();
+    }
+
+    @Override
+    public Optional<Function<Object, Object>> getter(Class<?> sourceClass, String name) {
+        for (RecordComponent component : sourceClass.getRecordComponents()) {
+            if (component.getName().equals(name)) {
+                final Method accessor = component.getAccessor();
+                accessor.trySetAccessible();
+                return Optional.of(record -> {
+                    try {
+                        return accessor.invoke(record);
+                    } catch (ReflectiveOperationException e) {
+                        log.warn("When calling {}: {}", accessor, e.getMessage());
+                        return null;
+                    }
+                });
+            }
+        }
+        return Optional.empty();
+    }
+}
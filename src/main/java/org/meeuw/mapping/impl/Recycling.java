@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.meeuw.mapping.DestinationPool;
+import org.meeuw.mapping.Mapper;
+
+/**
+ * Resets destination objects, so that they can be mapped into again (see {@link Mapper#mapInto(Object, Object, Class[])}).
+ * <p>
+ * Exactly the fields that are managed by {@link org.meeuw.mapping.annotations.Source} annotations are reset: primitives to their default, other
+ * values to {@code null}. Sub objects that came from the mapper's {@link DestinationPool} are given back to it, and reset too. Collections and
+ * maps that the pool {@link DestinationPool#adopted(Object) adopted} are cleared rather than dropped, so that they can be refilled (see
+ * {@link Containers.Container#convertInto(Object, java.util.function.UnaryOperator, Object)}). Other ones may be shared with (e.g.) the previous
+ * source, and are left alone.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public final class Recycling {
+
+    private static final ClassValue<Field[]> MANAGED = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            if (Util.builtClass(type) != null) {
+                // builders can't be read back
+                return new Field[0];
+            }
+            final List<Field> result = new ArrayList<>();
+            for (Field f : Util.destinationFields(type)) {
+                final int modifiers = f.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || Util.getAllSourceAnnotations(f).isEmpty()) {
+                    continue;
+                }
+                f.setAccessible(true);
+                result.add(f);
+            }
+            return result.toArray(new Field[0]);
+        }
+    };
+
+    private Recycling() {
+        // no instances
+    }
+
+    /**
+     * @return The fields of {@code destinationClass} that are reset by {@link #reset(Mapper, Object)}
+     */
+    public static Field[] managedFields(Class<?> destinationClass) {
+        return MANAGED.get(destinationClass);
+    }
+
+    /**
+     * Resets all managed fields of {@code destination}.
+     */
+    public static void reset(Mapper mapper, Object destination) {
+        reset(mapper.destinationPool(), destination);
+    }
+
+    private static void reset(DestinationPool pool, Object destination) {
+        for (Field field : MANAGED.get(destination.getClass())) {
+            try {
+                resetField(pool, field, destination);
+            } catch (IllegalAccessException | RuntimeException e) {
+                log.warn("Could not reset {}: {}", field, e.getMessage());
+            }
+        }
+    }
+
+    private static void resetField(DestinationPool pool, Field field, Object destination) throws IllegalAccessException {
+        final Class<?> type = field.getType();
+        if (type.isPrimitive()) {
+            if (type == int.class) {
+                field.setInt(destination, 0);
+            } else if (type == long.class) {
+                field.setLong(destination, 0L);
+            } else if (type == double.class) {
+                field.setDouble(destination, 0d);
+            } else if (type == float.class) {
+                field.setFloat(destination, 0f);
+            } else if (type == boolean.class) {
+                field.setBoolean(destination, false);
+            } else if (type == short.class) {
+                field.setShort(destination, (short) 0);
+            } else if (type == byte.class) {
+                field.setByte(destination, (byte) 0);
+            } else if (type == char.class) {
+                field.setChar(destination, (char) 0);
+            }
+            return;
+        }
+        final Object value = field.get(destination);
+        if (value == null) {
+            return;
+        }
+        if (pool != null) {
+            final Containers.Container container = Containers.forField(field);
+            if (container != null) {
+                if (container.mappableElements()) {
+                    releaseElements(pool, value);
+                }
+                if (pool.adopted(value)) {
+                    // created by the mapper itself, so it can be refilled
+                    if (value instanceof Map<?, ?> map) {
+                        map.clear();
+                    } else {
+                        ((Collection<?>) value).clear();
+                    }
+                    return;
+                }
+            } else if (Util.isMappable(type)) {
+                release(pool, value);
+            }
+        }
+        field.set(destination, null);
+    }
+
+    private static void releaseElements(DestinationPool pool, Object container) {
+        if (container instanceof Map<?, ?> map) {
+            for (Object element : map.values()) {
+                release(pool, element);
+            }
+        } else if (container instanceof Collection<?> collection) {
+            for (Object element : collection) {
+                release(pool, element);
+            }
+        } else if (container.getClass().isArray()) {
+            final int length = Array.getLength(container);
+            for (int i = 0; i < length; i++) {
+                release(pool, Array.get(container, i));
+            }
+        }
+    }
+
+    private static void release(DestinationPool pool, Object object) {
+        if (object == null || !pool.release(object)) {
+            return;
+        }
+        // it is not owned by the pool any more, so this terminates for cycles too
+        reset(pool, object);
+    }
+}
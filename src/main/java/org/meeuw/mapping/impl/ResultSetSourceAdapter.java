@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.meeuw.mapping.SourceAdapter;
+
+/**
+ * Reads values from the current row of a {@link ResultSet}, by column label. For a result set that is mapped via {@link org.meeuw.mapping.Mapper#mapResultSet(ResultSet, Class, Class[])},
+ * the index of a column is resolved only once, in its {@link ColumnIndexes}.
+ * <p>
+ * {@link Blob}s and {@link Clob}s are offered as streams, so json in them can be parsed without copying it first. While a row is {@link #startRow(ResultSet, int) marked},
+ * the values read from it are remembered, so that several destination fields that read from the same column share the value (and so, a json blob is parsed only once).
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public class ResultSetSourceAdapter implements SourceAdapter {
+
+    private static final ThreadLocal<Row> ROW = new ThreadLocal<>();
+
+    private static final Object NULL = new Object();
+
+    /**
+     * Marks the start of mapping the current row of the result set of {@code indexes}.
+     */
+    public static void startRow(ColumnIndexes indexes) {
+        ROW.set(new Row(indexes, new Object[indexes.columnCount]));
+    }
+
+    public static void endRow() {
+        ROW.remove();
+    }
+
+    @Override
+    public boolean supports(Class<?> sourceClass) {
+        return ResultSet.class.isAssignableFrom(sourceClass);
+    }
+
+    @Override
+    public Optional<Function<Object, Object>> getter(Class<?> sourceClass, String name) {
+        return Optional.of(new ColumnGetter(name));
+    }
+
+    /**
+     * The indexes of the columns of one result set, which are resolved when first needed.
+     */
+    public static final class ColumnIndexes {
+        private final ResultSet resultSet;
+        private final int columnCount;
+        private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+
+        public ColumnIndexes(ResultSet resultSet) throws SQLException {
+            this.resultSet = resultSet;
+            this.columnCount = resultSet.getMetaData().getColumnCount();
+        }
+
+        int index(String name) {
+            Integer index = indexes.get(name);
+            if (index == null) {
+                index = find(resultSet, name);
+                indexes.put(name, index);
+            }
+            return index;
+        }
+    }
+
+    private record Row(ColumnIndexes indexes, Object[] values) {
+    }
+
+    /**
+     * @return The index of the column, or {@code -1} if it doesn't exist
+     */
+    private static int find(ResultSet resultSet, String name) {
+        try {
+            return resultSet.findColumn(name);
+        } catch (SQLException e) {
+            log.debug("No column {}: {}", name, e.getMessage());
+            return -1;
+        }
+    }
+
+    private static class ColumnGetter implements Function<Object, Object> {
+        private final String name;
+
+        ColumnGetter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object apply(Object source) {
+            final ResultSet resultSet = (ResultSet) source;
+            final Row row = ROW.get();
+            if (row == null || row.indexes().resultSet != resultSet) {
+                final int index = find(resultSet, name);
+                return index < 1 ? null : read(resultSet, index);
+            }
+            final int index = row.indexes().index(name);
+            if (index < 1) {
+                return null;
+            }
+            if (index > row.values().length) {
+                return read(resultSet, index);
+            }
+            Object value = row.values()[index - 1];
+            if (value == null) {
+                value = read(resultSet, index);
+                row.values()[index - 1] = value == null ? NULL : value;
+            }
+            return value == NULL ? null : value;
+        }
+
+        private Object read(ResultSet resultSet, int index) {
+            try {
+                final Object value = resultSet.getObject(index);
+                if (value instanceof Blob blob) {
+                    return blob.getBinaryStream();
+                }
+                if (value instanceof Clob clob) {
+                    return clob.getCharacterStream();
+                }
+                return value;
+            } catch (SQLException e) {
+                log.warn("When reading column {}: {}", name, e.getMessage());
+                return null;
+            }
+        }
+    }
+}
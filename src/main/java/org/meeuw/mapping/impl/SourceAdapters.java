@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.meeuw.mapping.SourceAdapter;
+
+/**
+ * Finds (and caches) the {@link SourceAdapter} for source classes, and the getters they provide.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+public class SourceAdapters {
+
+    private static final List<SourceAdapter> ADAPTERS;
+    static {
+        List<SourceAdapter> adapters = new ArrayList<>();
+        ServiceLoader.load(SourceAdapter.class).forEach(adapters::add);
+        adapters.add(new MapSourceAdapter());
+        adapters.add(new ResultSetSourceAdapter());
+        adapters.add(new RecordSourceAdapter());
+        ADAPTERS = List.copyOf(adapters);
+    }
+
+    private static final ClassValue<Optional<SourceAdapter>> FOR_CLASS = new ClassValue<>() {
+        @Override
+        protected Optional<SourceAdapter> computeValue(Class<?> sourceClass) {
+            return ADAPTERS.stream()
+                .filter(a -> a.supports(sourceClass))
+                .findFirst();
+        }
+    };
+
+    private static final Map<Class<?>, Map<String, Optional<Function<Object, Object>>>> GETTERS = new ConcurrentHashMap<>();
+
+    private SourceAdapters() {
+        // no instances
+    }
+
+    /**
+     * @return Whether values of objects of {@code sourceClass} are read by a {@link SourceAdapter} (rather than from fields)
+     */
+    public static boolean isAdapted(Class<?> sourceClass) {
+        return FOR_CLASS.get(sourceClass).isPresent();
+    }
+
+    /**
+     * @return The (cached) getter for the value with the given name, if {@code sourceClass} {@link #isAdapted(Class) is adapted}, and can have such a value.
+     */
+    public static Optional<Function<Object, Object>> getter(Class<?> sourceClass, String name) {
+        final Optional<SourceAdapter> adapter = FOR_CLASS.get(sourceClass);
+        if (adapter.isEmpty()) {
+            return Optional.empty();
+        }
+        return GETTERS
+            .computeIfAbsent(sourceClass, c -> new ConcurrentHashMap<>())
+            .computeIfAbsent(name, n -> adapter.get().getter(sourceClass, n));
+    }
+}
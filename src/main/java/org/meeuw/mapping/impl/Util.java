@@ -32,12 +32,20 @@ public class Util {
 
 
     public static Optional<EffectiveSource> getAnnotation(Class<?> sourceClass, Class<?> destinationClass, Field destinationField, Class<?>... groups) {
+        return getAnnotation(sourceClass, destinationClass, destinationField, Groups.requested(groups));
+    }
+
+    /**
+     * @param requestedGroups The {@link Groups#requested(Class[]) mask} of the requested groups
+     */
+    public static Optional<EffectiveSource> getAnnotation(Class<?> sourceClass, Class<?> destinationClass, Field destinationField, long requestedGroups) {
 
         destinationField =  associatedBuilderField(destinationField).orElse(destinationField);
         Source defaultValues = null;
         {
-            Class<?> clazz = destinationClass;
-            while(clazz != Object.class && defaultValues == null) {
+            final Class<?> built = builtClass(destinationClass);
+            Class<?> clazz = built == null ? destinationClass : built;
+            while(clazz != null && clazz != Object.class && defaultValues == null) {
                 defaultValues = clazz.getAnnotation(Source.class);
                 clazz = clazz.getSuperclass();
             }
@@ -45,7 +53,7 @@ public class Util {
         EffectiveSource s = null;
         for (Source annotation : getAllSourceAnnotations(destinationField)) {
             EffectiveSource proposal =  EffectiveSource.of(annotation, defaultValues);
-            if (matches(proposal, sourceClass, destinationField.getName(), groups)) {
+            if (matches(proposal, sourceClass, destinationField.getName(), requestedGroups)) {
                 if (s == null) {
                     s = proposal;
                 } else {
@@ -74,7 +82,11 @@ public class Util {
 
     }
 
-    private static Optional<Field> associatedBuilderField(Field f) {
+    /**
+     * @param f A field of a destination object
+     * @return If {@code f} is a field of a (lombok generated) builder, the associated field of the built class, which carries the annotations.
+     */
+    public static Optional<Field> associatedBuilderField(Field f) {
         if (f != null && f.getAnnotations().length == 0) {
             Class<?> clazz = f.getDeclaringClass();
             if (clazz.getName().endsWith("Builder")) {
@@ -93,6 +105,88 @@ public class Util {
         return Optional.empty();
     }
 
+    private static final ClassValue<Optional<Class<?>>> BUILT_CLASS = new ClassValue<>() {
+        @Override
+        protected Optional<Class<?>> computeValue(Class<?> type) {
+            if (!type.getName().endsWith("Builder")) {
+                return Optional.empty();
+            }
+            try {
+                Method build = type.getMethod("build");
+                if (!Modifier.isStatic(build.getModifiers()) && build.getReturnType() != void.class && !build.getReturnType().isPrimitive()) {
+                    return Optional.of(build.getReturnType());
+                }
+            } catch (NoSuchMethodException e) {
+                log.debug("{} has no build method", type);
+            }
+            return Optional.empty();
+        }
+    };
+
+    /**
+     * @param destinationClass A destination class
+     * @return If {@code destinationClass} is a builder (its name ends with 'Builder' and it has a public {@code build()} method), the class it builds. Otherwise {@code null}.
+     * @since 0.7
+     */
+    public static Class<?> builtClass(Class<?> destinationClass) {
+        return BUILT_CLASS.get(destinationClass).orElse(null);
+    }
+
+    // a ClassValue may (unlike a ConcurrentHashMap in computeIfAbsent) be queried recursively, which happens for the superclasses
+    private static final ClassValue<List<Field>> DESTINATION_FIELDS = new ClassValue<>() {
+        @Override
+        protected List<Field> computeValue(Class<?> destinationClass) {
+            List<Field> fields = new ArrayList<>();
+            Class<?> superClass = destinationClass.getSuperclass();
+            if (superClass != null) {
+                fields.addAll(get(superClass));
+            }
+            fields.addAll(Arrays.asList(destinationClass.getDeclaredFields()));
+            return Collections.unmodifiableList(fields);
+        }
+    };
+
+    /**
+     * @param destinationClass A destination class
+     * @return All fields declared in the class and its superclasses, the ones of superclasses first. This defines the order in which
+     * fields are mapped, and the indices of {@link MappingPlan.Step#index()}. For a {@link #builtClass(Class) builder}, these are the fields of the class it builds,
+     * which carry the annotations, and which are then written via the methods of the builder (see {@link FieldWriter}).
+     */
+    public static List<Field> destinationFields(Class<?> destinationClass) {
+        final Class<?> built = builtClass(destinationClass);
+        if (built != null) {
+            return destinationFields(built);
+        }
+        return DESTINATION_FIELDS.get(destinationClass);
+    }
+
+    private static final ClassValue<Boolean> MAPPABLE = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (type.isPrimitive() || type.isArray() || type.isInterface() || type.getName().startsWith("java.")) {
+                return false;
+            }
+            if (type.getAnnotation(Source.class) != null) {
+                return true;
+            }
+            for (Field field : destinationFields(type)) {
+                if (!getAllSourceAnnotations(field).isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    /**
+     * @param type A type of a destination field
+     * @return Whether objects of this type can be the destination of a (sub) mapping, i.e. whether the type (or one of its fields) has {@link Source} annotations
+     * @since 0.7
+     */
+    public static boolean isMappable(Class<?> type) {
+        return MAPPABLE.get(type);
+    }
+
     public static boolean isJsonField(Class<?> clazz) {
         if (JsonNode.class.isAssignableFrom(clazz)) {
             return true;
@@ -102,24 +196,12 @@ public class Util {
     }
 
 
-    private static boolean matches(EffectiveSource source, Class<?> sourceClass, String destinationField, Class<?>... groups) {
+    private static boolean matches(EffectiveSource source, Class<?> sourceClass, String destinationField, long requestedGroups) {
         if (source == null) {
             return false;
         }
-        if (source.groups().length > 0 && groups.length > 0) {
-            boolean foundMatch = false;
-            OUTER:
-            for (Class<?> group : source.groups()) {
-                for (Class<?> groupOfSource : source.groups()) {
-                    if (group.isAssignableFrom(groupOfSource)) {
-                        foundMatch = true;
-                        break OUTER;
-                    }
-                }
-            }
-            if (!foundMatch) {
-               return false;
-            }
+        if (!Groups.matches(source.groupsMask(), requestedGroups)) {
+            return false;
         }
         String field = source.field();
 
@@ -130,8 +212,13 @@ public class Util {
                 field = destinationField;
             }
         }
-        return source.sourceClass().isAssignableFrom(sourceClass) &&
-            getSourceField(sourceClass, field).isPresent();
+        if (!source.sourceClass().isAssignableFrom(sourceClass)) {
+            return false;
+        }
+        if (SourceAdapters.isAdapted(sourceClass)) {
+            return SourceAdapters.getter(sourceClass, field).isPresent();
+        }
+        return getSourceField(sourceClass, field).isPresent();
 
     }
 
@@ -170,26 +257,8 @@ public class Util {
     }
 
     public static Optional<Object> getSourceValue(Object source, Field sourceField, String... path) {
-          try {
-              sourceField.setAccessible(true);
-              Object value = sourceField.get(source);
-              for (String p : path) {
-                  if (value != null) {
-                      Field su = value.getClass().getDeclaredField(p);
-                      su.setAccessible(true);
-                      value = su.get(value);
-                  }
-              }
-              return Optional.ofNullable(value);
-          } catch (IllegalAccessException | NoSuchFieldException e) {
-              log.warn(e.getMessage());
-              return Optional.empty();
-          }
-
+        sourceField.setAccessible(true);
+        return PathAccessor.of(path).get(source, sourceField);
     }
 
-
-
-
-
 }
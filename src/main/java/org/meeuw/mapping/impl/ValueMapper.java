@@ -3,17 +3,19 @@ package org.meeuw.mapping.impl;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 import jakarta.xml.bind.annotation.XmlEnumValue;
-import jakarta.xml.bind.annotation.adapters.XmlAdapter;
-import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
+import org.meeuw.mapping.DestinationPool;
+import org.meeuw.mapping.InternCache;
 import org.meeuw.mapping.MapException;
 import org.meeuw.mapping.Mapper;
+import org.meeuw.mapping.annotations.Interned;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 import static org.meeuw.mapping.Mapper.current;
 
@@ -23,37 +25,22 @@ public class ValueMapper {
 
 
     public static  Object valueFor(Mapper mapper,  Field destinationField, Class<?> destinationClass,  Object o) throws ReflectiveOperationException {
-        if (mapper.supportsJaxbAnnotations()) {
-           o = considerXmlAdapter(o, destinationField);
-        }
-        o = considerEnums(o, destinationField, mapper.supportsJaxbAnnotations());
-        o = considerJson(mapper, o, destinationField, destinationClass);
-        return o;
+        return valueFor(mapper, destinationField, destinationClass, o, mapper.supportsJaxbAnnotations() ? XmlAdapters.forField(destinationField) : null);
     }
 
-    private static final Map<Field, Optional<XmlAdapter<?, ?>>> ADAPTERS = new ConcurrentHashMap<>();
-
-    private static Object considerXmlAdapter(Object o, Field destinationField)  {
-        Optional<XmlAdapter<?, ?>> adapter = ADAPTERS.computeIfAbsent(destinationField, (field) -> {
-            XmlJavaTypeAdapter annotation = field.getAnnotation(XmlJavaTypeAdapter.class);
-            if (annotation != null) {
-                try {
-                    XmlAdapter<?, ?> xmlAdapter = annotation.value().getDeclaredConstructor().newInstance();
-                    return Optional.of(xmlAdapter);
-                } catch (Exception e) {
-                    log.warn(e.getMessage(), e);
-                }
-            }
-            return Optional.empty();
-        });
-        if (adapter.isPresent()) {
-            try {
-                //noinspection unchecked,rawtypes
-                o = ((XmlAdapter) adapter.get()).unmarshal(o);
-            } catch (Exception e) {
-                log.warn(e.getMessage());
-            }
+    /**
+     * As {@link #valueFor(Mapper, Field, Class, Object)}, but with the xml adapter already resolved.
+     * @param xmlAdapter The {@link XmlAdapters#forField(Field) xml adapter} for {@code destinationField}, or {@code null}
+     * @since 0.7
+     */
+    public static  Object valueFor(Mapper mapper,  Field destinationField, Class<?> destinationClass,  Object o, XmlAdapters.Adapter xmlAdapter) throws ReflectiveOperationException {
+        if (xmlAdapter != null) {
+           // the adapter may look at (sub mapped) values, so they must be complete
+           MappingContext.drainCurrent();
+           o = xmlAdapter.unmarshal(o);
         }
+        o = considerEnums(o, destinationField, mapper.supportsJaxbAnnotations());
+        o = considerJson(mapper, o, destinationField, destinationClass);
         return o;
     }
 
@@ -84,6 +71,7 @@ public class ValueMapper {
     private static Object considerJson(Mapper mapper, Object o, Field destinationField, Class<?> destinationClass) {
         List<BiFunction<Object, Field, Optional<Object>>> customMappers = mapper.customMappers().get(destinationClass);
         if (customMappers != null) {
+            MappingContext.drainCurrent();
             for (BiFunction<Object, Field, Optional<Object>> customMapper: customMappers){
                 Optional<Object> tryMap = customMapper.apply(o, destinationField);
                 if (tryMap.isPresent()) {
@@ -95,29 +83,88 @@ public class ValueMapper {
     }
 
 
-    static Object unwrapCollections(Object possiblyACollection, Field destination) {
-        if (possiblyACollection instanceof Collection<?> list) {
-            if (destination.getType() == List.class) {
-                ParameterizedType genericType = (ParameterizedType) destination.getGenericType();
-                Class<?> genericClass = (Class<?>) genericType.getActualTypeArguments()[0];
-                if (genericClass != Object.class) {
-                    return list.stream()
-                        .map(o -> {
-                                try {
-                                    Object mapped = subMap(current(), o, genericClass, destination);
-                                    return mapped;
-                                } catch (MapException me) {
-                                    log.warn(me.getMessage(), me);
-                                    return null;
-                                }
-                            }
-                        ).toList();
-                }
-            }
+    /**
+     * Sub maps values which can not be set in {@code destinationField} as they are. That are objects that are not of the type of the field, if that type
+     * is {@link Util#isMappable(Class) mappable}, and {@link Containers containers} which are not of the type of the field, or have elements which need sub mapping.
+     * @param mapper The current mapper
+     * @param value The value obtained from the source
+     * @param destinationField The field to set
+     * @return The value to set
+     * @since 0.7
+     */
+    public static Object subMapIfNeeded(Mapper mapper, Object value, Field destinationField) {
+        return subMapIfNeeded(mapper, value, destinationField, Containers.forField(destinationField));
+    }
 
+    /**
+     * As {@link #subMapIfNeeded(Mapper, Object, Field)}, with the container description of the field already resolved.
+     * @param container The {@link Containers#forField(Field) container} of {@code destinationField}, or {@code null}
+     * @since 0.7
+     */
+    public static Object subMapIfNeeded(Mapper mapper, Object value, Field destinationField, Containers.Container container) {
+        final Class<?> type = destinationField.getType();
+        if (value == null || type.isPrimitive()) {
+            return value;
         }
-        return possiblyACollection;
+        if (container != null && (value instanceof Collection<?> || value instanceof Map<?, ?> || value.getClass().isArray())) {
+            return container.needsConversion(value) ? container.convert(value, Containers.subMapping(mapper, container, destinationField)) : value;
+        }
+        if (type.isInstance(value)) {
+            return value;
+        }
+        if (Util.isMappable(type)) {
+            return subMap(mapper, value, type, destinationField);
+        }
+        return value;
+    }
 
+    /**
+     * Adds the (converted) elements of {@code value} to the collection or map that {@code destinationField} already holds, which must have been
+     * {@link Recycling#reset(Mapper, Object) reset} before. That only happens if it was {@link DestinationPool#adopted(Object) adopted} by the
+     * pool of the mapper, otherwise it may be shared with something else.
+     * @param container The {@link Containers#forField(Field) container} of {@code destinationField}
+     * @return Whether that was possible. If not, the value must be set as usual.
+     * @since 0.7
+     */
+    public static boolean refill(Mapper mapper, Object value, Object destination, Field destinationField, Containers.Container container) throws IllegalAccessException {
+        final DestinationPool pool = mapper.destinationPool();
+        if (pool == null) {
+            return false;
+        }
+        final Object existing = destinationField.get(destination);
+        return existing != null && pool.adopted(existing) && container.convertInto(value, Containers.subMapping(mapper, container, destinationField), existing);
+    }
+
+    /**
+     * Converts {@code value} to a new collection or map, which is {@link DestinationPool#adopt(Object) adopted} by the pool of the mapper, so it can be
+     * {@link #refill(Mapper, Object, Object, Field, Containers.Container) refilled} the next time the destination is recycled. Collections of the
+     * source are so never set as is.
+     * @since 0.7
+     */
+    public static Object adopt(Mapper mapper, Object value, Field destinationField, Containers.Container container) {
+        final DestinationPool pool = mapper.destinationPool();
+        if (pool == null || !(value instanceof Collection<?> || value instanceof Map<?, ?> || value instanceof JsonNode)) {
+            return value;
+        }
+        final Object result = container.convert(value, Containers.subMapping(mapper, container, destinationField));
+        if (result != value) {
+            pool.adopt(result);
+        }
+        return result;
+    }
+
+    /**
+     * Converts the (unwrapped) value of a json array or object to the container type of {@code destination}, sub mapping the elements if needed.
+     */
+    static Object unwrapCollections(Object possiblyACollection, Field destination) {
+        final Containers.Container container = Containers.forField(destination);
+        if (container == null) {
+            return possiblyACollection;
+        }
+        if (possiblyACollection instanceof Collection<?> || (container.isMap() && possiblyACollection instanceof JsonNode)) {
+            return container.convert(possiblyACollection, Containers.subMapping(current(), container, destination));
+        }
+        return possiblyACollection;
     }
 
     /**
@@ -131,14 +178,40 @@ public class ValueMapper {
             if (destinationClass.isInstance(source)) {
                 return (T) source;
             }
-            T destination = destinationClass.getDeclaredConstructor().newInstance();
-            mapper.subMap(source, destination,  destinationClass, groups);
-            return destination;
         } catch (ReflectiveOperationException e) {
             throw new MapException(e);
         }
+        final Object key = internKey(mapper, source, destinationClass, groups);
+        if (key != null) {
+            final Object finalSource = source;
+            return mapper.internCache().intern(destinationClass, key, () -> {
+                // interned objects may be shared with other threads right away, so they must be complete before they are put in the cache
+                final T destination = MappingContext.subMap(mapper, finalSource, destinationClass, groups);
+                MappingContext.drainCurrent();
+                return destination;
+            });
+        }
+        return MappingContext.subMap(mapper, source, destinationClass, groups);
+    }
 
-
+    /**
+     * @return The key to {@link InternCache#intern(Class, Object, java.util.function.Supplier) intern} the result of sub mapping {@code source} with, or {@code null}
+     * if it should not be interned.
+     */
+    private static Object internKey(Mapper mapper, Object source, Class<?> destinationClass, Class<?>... groups) {
+        if (mapper.internCache() == null || !(source instanceof JsonNode json)) {
+            return null;
+        }
+        final Interned interned = destinationClass.getAnnotation(Interned.class);
+        if (interned == null) {
+            return null;
+        }
+        final Object key = interned.key().isEmpty() ? json : json.get(interned.key());
+        if (key == null) {
+            return null;
+        }
+        // the result may depend on the groups
+        return groups.length == 0 ? key : List.of(key, Groups.requested(groups));
     }
 
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2024 Licensed under the Apache License, Version 2.0
+ */
+package org.meeuw.mapping.impl;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.xml.bind.annotation.adapters.XmlAdapter;
+import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapters;
+
+import org.meeuw.mapping.annotations.ThreadSafe;
+
+/**
+ * Resolves the {@link XmlAdapter} that applies to a destination field, like JAXB would: an {@link XmlJavaTypeAdapter} on the field itself, on the type of the field,
+ * or (via {@link XmlJavaTypeAdapters}) on the package of the class declaring the field.
+ * <p>
+ * Adapters annotated {@link ThreadSafe} are shared. Of other ones, every thread gets its own instance.
+ *
+ * @author Michiel Meeuwissen
+ * @since 0.7
+ */
+@Slf4j
+public final class XmlAdapters {
+
+    private static final Map<Field, Optional<Adapter>> CACHE = new ConcurrentHashMap<>();
+
+    private XmlAdapters() {
+        // no instances
+    }
+
+    /**
+     * @return The (cached) adapter for {@code field}, or {@code null} if there is none.
+     */
+    public static Adapter forField(Field field) {
+        Optional<Adapter> adapter = CACHE.get(field);
+        if (adapter == null) {
+            adapter = CACHE.computeIfAbsent(field, f -> {
+                try {
+                    return adapterClass(f).map(Adapter::new);
+                } catch (IllegalStateException e) {
+                    log.warn(e.getMessage(), e);
+                    return Optional.empty();
+                }
+            });
+        }
+        return adapter.orElse(null);
+    }
+
+    @SuppressWarnings("rawtypes")
+    static Optional<Class<? extends XmlAdapter>> adapterClass(Field field) {
+        final XmlJavaTypeAdapter onField = field.getAnnotation(XmlJavaTypeAdapter.class);
+        if (onField != null) {
+            return Optional.of(onField.value());
+        }
+        final Class<?> type = field.getType();
+        final XmlJavaTypeAdapter onType = type.getAnnotation(XmlJavaTypeAdapter.class);
+        if (onType != null) {
+            return Optional.of(onType.value());
+        }
+        final Package pack = field.getDeclaringClass().getPackage();
+        if (pack != null) {
+            final XmlJavaTypeAdapter onPackage = pack.getAnnotation(XmlJavaTypeAdapter.class);
+            if (onPackage != null && onPackage.type() == type) {
+                return Optional.of(onPackage.value());
+            }
+            final XmlJavaTypeAdapters onPackages = pack.getAnnotation(XmlJavaTypeAdapters.class);
+            if (onPackages != null) {
+                for (XmlJavaTypeAdapter a : onPackages.value()) {
+                    if (a.type() == type) {
+                        return Optional.of(a.value());
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * The resolved adapter of a field, which hands out instances of it in a thread-safe way.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static final class Adapter {
+
+        @Getter
+        private final Class<? extends XmlAdapter> adapterClass;
+        private final XmlAdapter shared;
+        private final ThreadLocal<XmlAdapter> perThread;
+
+        Adapter(Class<? extends XmlAdapter> adapterClass) {
+            this.adapterClass = adapterClass;
+            if (adapterClass.isAnnotationPresent(ThreadSafe.class)) {
+                this.shared = newInstance();
+                this.perThread = null;
+            } else {
+                this.shared = null;
+                this.perThread = ThreadLocal.withInitial(this::newInstance);
+            }
+        }
+
+        /**
+         * Unmarshals {@code value}
+         * @return The unmarshalled value, or {@code value} itself if that failed.
+         */
+        public Object unmarshal(Object value) {
+            if (shared != null) {
+                return unmarshal(shared, value);
+            }
+            return unmarshal(perThread.get(), value);
+        }
+
+        private Object unmarshal(XmlAdapter adapter, Object value) {
+            try {
+                return adapter.unmarshal(value);
+            } catch (Exception e) {
+                log.warn(e.getMessage());
+                return value;
+            }
+        }
+
+        private XmlAdapter newInstance() {
+            try {
+                return adapterClass.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.meeuw.mapping;
+
+import lombok.Getter;
+
+import java.util.List;
+
+import org.meeuw.mapping.annotations.Source;
+
+@Getter
+public class BroadcastersDestination {
+
+    @Source(field = "moreJson", jsonPointer = "/broadcasters")
+    List<InternedBroadcaster> broadcasters;
+}
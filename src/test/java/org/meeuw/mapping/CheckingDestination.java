@@ -0,0 +1,39 @@
+package org.meeuw.mapping;
+
+import java.util.List;
+
+import org.meeuw.mapping.annotations.Source;
+
+/**
+ * Reads the sub mapped values as soon as they are set.
+ */
+public class CheckingDestination {
+
+    @Source(sourceClass = SourceObject.class, field = "moreJson", jsonPointer = "/broadcaster")
+    SubSourceObject broadcaster;
+
+    @Source(sourceClass = SourceObject.class, field = "moreJson", jsonPointer = "/broadcasters")
+    List<SubSourceObject> broadcasters;
+
+    String seen;
+
+    List<String> seenInList;
+
+    public void setBroadcaster(SubSourceObject broadcaster) {
+        this.broadcaster = broadcaster;
+        this.seen = broadcaster.broadcaster2();
+    }
+
+    public void setBroadcasters(List<SubSourceObject> broadcasters) {
+        this.broadcasters = broadcasters;
+        this.seenInList = broadcasters.stream().map(SubSourceObject::broadcaster2).toList();
+    }
+
+    public String seen() {
+        return seen;
+    }
+
+    public List<String> seenInList() {
+        return seenInList;
+    }
+}
@@ -0,0 +1,23 @@
+package org.meeuw.mapping;
+
+import lombok.Data;
+
+import java.util.*;
+
+import org.meeuw.mapping.annotations.Source;
+
+@Data
+public class ContainerDestination {
+
+    @Source(sourceClass = SourceObject.class, field = "moreJson", jsonPointer = "/broadcasters")
+    Set<SubSourceObject> broadcasterSet;
+
+    @Source(sourceClass = SourceObject.class, field = "moreJson", jsonPointer = "/broadcasters")
+    SubSourceObject[] broadcasterArray;
+
+    @Source(sourceClass = SourceObject.class, field = "moreJson", jsonPointer = "/broadcasters")
+    Collection<? extends SubSourceObject> broadcasterCollection;
+
+    @Source(sourceClass = SourceObject.class, field = "moreJson", jsonPointer = "/byKey")
+    SortedMap<String, SubSourceObject> broadcasterMap;
+}
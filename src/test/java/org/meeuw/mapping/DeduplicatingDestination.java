@@ -0,0 +1,17 @@
+package org.meeuw.mapping;
+
+import lombok.Getter;
+
+import org.meeuw.mapping.annotations.Deduplicate;
+import org.meeuw.mapping.annotations.Source;
+
+@Getter
+public class DeduplicatingDestination {
+
+    @Source(field = "json", jsonPointer = "/title", sourceClass = SourceObject.class)
+    String title;
+
+    @Source(field = "moreJson", jsonPointer = "/a/b/value", sourceClass = SourceObject.class)
+    @Deduplicate
+    String description;
+}
@@ -0,0 +1,16 @@
+package org.meeuw.mapping;
+
+import lombok.Getter;
+
+import org.meeuw.mapping.annotations.Interned;
+import org.meeuw.mapping.annotations.Source;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+@Getter
+@Interned
+public class InternedBroadcaster {
+
+    @Source(sourceClass = JsonNode.class, jsonPointer = "/name")
+    String name;
+}
@@ -0,0 +1,17 @@
+package org.meeuw.mapping;
+
+import lombok.Data;
+
+import org.meeuw.mapping.annotations.Source;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Mapped from json directly, with a field that is decoded by jackson.
+ */
+@Data
+public class JsonPointDestination {
+
+    @Source(sourceClass = JsonNode.class, jsonPointer = "/location")
+    TypedDestination.Point location;
+}
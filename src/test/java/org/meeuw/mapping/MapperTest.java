@@ -2,12 +2,24 @@ package org.meeuw.mapping;
 
 import lombok.extern.log4j.Log4j2;
 
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -76,6 +88,223 @@ class MapperTest {
 
 
 
+    @Test
+    void toProtoStyleBuilder() {
+        SourceObject sourceObject = new SourceObject().title("bla bla");
+        sourceObject.moreJson("{'tags': ['a', 'b']}");
+        ProtoStyleMessage.Builder builder = ProtoStyleMessage.newBuilder();
+        MAPPER.map(sourceObject, builder);
+        ProtoStyleMessage message = builder.build();
+        assertThat(message.getTitle()).isEqualTo("bla bla");
+        assertThat(message.getTags()).containsExactly("a", "b");
+        assertThat(MAPPER.explain(SourceObject.class, ProtoStyleMessage.Builder.class).fields())
+            .allMatch(Explanation.FieldExplanation::builder)
+            .anyMatch(f -> f.conversions().contains("write via method setTitle"))
+            .noneMatch(f -> f.destinationField().equals("subtitle"));
+    }
+
+    @Test
+    void writesViaSetters() {
+        SourceObject sourceObject = new SourceObject().title(" bla bla ");
+        assertThat(MAPPER.map(sourceObject, ValidatingDestination.class).getTitle()).isEqualTo(" bla bla ");
+        assertThat(MAPPER.withWritesViaSetters(true).map(sourceObject, ValidatingDestination.class).getTitle()).isEqualTo("bla bla");
+    }
+
+    @Test
+    void settersSeeFilledSubObjects() {
+        SourceObject sourceObject = new SourceObject();
+        sourceObject.moreJson("""
+            {
+              "broadcaster": {"resolved_value": "VPRO"},
+              "broadcasters": [{"resolved_value": "EO"}, {"resolved_value": "KRO"}]
+            }
+            """);
+        CheckingDestination destination = MAPPER.withWritesViaSetters(true).map(sourceObject, CheckingDestination.class);
+        assertThat(destination.seen()).isEqualTo("VPRO");
+        assertThat(destination.seenInList()).containsExactly("EO", "KRO");
+    }
+
+    @Test
+    void mapColumns() {
+        List<ExtendedSourceObject> sources = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ExtendedSourceObject sourceObject = new ExtendedSourceObject();
+            sourceObject.json(("{'title': 'title " + (i % 3) + "', 'enum': 'b'}").getBytes(StandardCharsets.UTF_8));
+            if (i % 10 != 0) {
+                sourceObject.subObject(new SubSourceObject(null, null, i));
+            }
+            sources.add(sourceObject);
+        }
+        Columns columns = MAPPER.mapColumns(sources, Destination.class);
+        assertThat(columns.size()).isEqualTo(100);
+
+        Columns.StringColumn titles = (Columns.StringColumn) columns.column("title");
+        assertThat(titles.dictionary()).containsExactly("title 0", "title 1", "title 2");
+        assertThat(titles.codes()).hasSize(100);
+        assertThat(titles.get(4)).isEqualTo("title 1");
+
+        Columns.LongColumn ids = (Columns.LongColumn) columns.column("id");
+        assertThat(ids.values()).hasSize(100);
+        assertThat(ids.getLong(42)).isEqualTo(42L);
+        assertThat(ids.isNull(40)).isTrue();
+        assertThat(ids.get(40)).isNull();
+
+        assertThat(columns.column("enumValue").get(0)).isEqualTo(ExampleEnum.b);
+        assertThat(columns.column("description").isNull(0)).isTrue();
+    }
+
+    @Test
+    void columnsDoNotTruncate() throws Exception {
+        Columns.Column counts = Columns.Column.of(ScalarDestination.class.getDeclaredField("count"), 0);
+        counts.append(1L);
+        counts.append(1L + Integer.MAX_VALUE);
+        counts.append(2.5);
+        assertThat(counts.get(0)).isEqualTo(1);
+        assertThat(counts.isNull(1)).isTrue();
+        assertThat(counts.isNull(2)).isTrue();
+
+        Columns.Column ids = Columns.Column.of(ScalarDestination.class.getDeclaredField("id"), 0);
+        ids.append(3.0);
+        ids.append(3.5);
+        assertThat(ids.get(0)).isEqualTo(3L);
+        assertThat(ids.isNull(1)).isTrue();
+    }
+
+    @Test
+    void columnsUseCustomMappersLikeMap() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Mapper mapper = MAPPER.withCustomMapper(Object.class, JsonPointDestination.class, (o, f) -> {
+            calls.incrementAndGet();
+            return Optional.empty();
+        });
+        JsonNode json = MAPPER.objectMapper().readTree("{\"location\": {\"x\": 1.5, \"y\": 2}}");
+        mapper.map(json, JsonPointDestination.class);
+        assertThat(calls.get()).isEqualTo(1);
+        Columns columns = mapper.mapColumns(List.of(json), JsonPointDestination.class);
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(((TypedDestination.Point) columns.column("location").get(0)).x()).isEqualTo(1.5);
+    }
+
+
+    @Test
+    void stream() throws IOException {
+        String ndjson = """
+            {"currentbroadcaster.broadcaster": {"resolved_value": "VPRO"}}
+            {"currentbroadcaster.broadcaster": {"resolved_value": "TROS"}}
+            """;
+        try (Stream<SubSourceObject> stream = MAPPER.stream(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), SubSourceObject.class)) {
+            assertThat(stream.map(SubSourceObject::broadcaster)).containsExactly("VPRO", "TROS");
+        }
+        String array = """
+            [
+              {"currentbroadcaster.broadcaster": {"resolved_value": "VPRO"}},
+              {"currentbroadcaster.broadcaster": {"resolved_value": "TROS"}}
+            ]
+            """;
+        try (Stream<SubSourceObject> stream = MAPPER.stream(new ByteArrayInputStream(array.getBytes(StandardCharsets.UTF_8)), SubSourceObject.class)) {
+            assertThat(stream.map(SubSourceObject::broadcaster)).containsExactly("VPRO", "TROS");
+        }
+    }
+
+    @Test
+    void streamFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("test.ndjson");
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < 10_000; i++) {
+                writer.write("{\"currentbroadcaster.broadcaster\": {\"resolved_value\": \"" + i + "\"}}\n");
+            }
+        }
+        try (Stream<SubSourceObject> stream = MAPPER.stream(file, SubSourceObject.class)) {
+            assertThat(stream.parallel().map(SubSourceObject::broadcaster).map(Integer::parseInt).toList())
+                .hasSize(10_000)
+                .isSorted();
+        }
+
+        Path arrayFile = dir.resolve("test.json");
+        Files.writeString(arrayFile, """
+             [{"currentbroadcaster.broadcaster": {"resolved_value": "VPRO"}}]
+            """);
+        try (Stream<SubSourceObject> stream = MAPPER.stream(arrayFile, SubSourceObject.class)) {
+            assertThat(stream.map(SubSourceObject::broadcaster)).containsExactly("VPRO");
+        }
+    }
+
+
+    @Test
+    void mapToAll() {
+        List<BinaryBlob> parsed = new ArrayList<>();
+        Mapper mapper = MAPPER.withBinaryWriteBack(parsed::add).withClearsJsonCacheEveryTime(true);
+        SourceObject sourceObject = new SourceObject();
+        sourceObject.json("""
+            {
+                title: "foo",
+                description: "bar"
+            }
+            """.getBytes(StandardCharsets.UTF_8));
+
+        Map<Class<?>, Object> result = mapper.mapToAll(sourceObject, Destination.class, AnotherDestination.class);
+        assertThat(result).hasSize(2);
+        assertThat(((Destination) result.get(Destination.class)).title()).isEqualTo("foo");
+        assertThat(((AnotherDestination) result.get(AnotherDestination.class)).title()).isEqualTo("foo");
+        assertThat(((AnotherDestination) result.get(AnotherDestination.class)).description()).isEqualTo("bar");
+        assertThat(parsed).hasSize(1);
+    }
+
+
+    @Test
+    void fieldMask() {
+        List<BinaryBlob> parsed = new ArrayList<>();
+        Mapper mapper = MAPPER.withBinaryWriteBack(parsed::add);
+        ExtendedSourceObject sourceObject = new ExtendedSourceObject();
+        sourceObject.json("{'title': 'foobar'}".getBytes(StandardCharsets.UTF_8));
+        sourceObject.moreJson("{'a': {'b': {'value': 'description'}}}");
+        sourceObject.subObject(new SubSourceObject(null, null, 1L));
+
+        FieldMask mask = FieldMask.of("id", "description");
+        Destination destination = mapper.map(sourceObject, Destination.class, mask);
+        assertThat(destination.id()).isEqualTo(1L);
+        assertThat(destination.description()).isEqualTo("description");
+        assertThat(destination.title()).isNull();
+        // the 'json' field was not needed, so not parsed
+        assertThat(parsed).hasSize(1);
+        assertThat(parsed.get(0).sourceField().getName()).isEqualTo("moreJson");
+
+        assertThat(mapper.map(sourceObject, Destination.class, FieldMask.of("id")).description()).isNull();
+    }
+
+
+    @Test
+    void groups() {
+        SourceObject sourceObject = new SourceObject();
+        sourceObject.moreJson("""
+          {
+            "nisv.currentbroadcaster": [
+              {
+                "currentbroadcaster.broadcaster": {
+                  "resolved_value": "VPRO"
+                }
+              }
+            ]
+          }
+          """);
+        {
+            Destination destination = MAPPER.map(sourceObject, Destination.class, Test1Class.class);
+            assertThat(destination.list()).hasSize(1);
+            assertThat(destination.list2()).isNull();
+        }
+        {
+            Destination destination = MAPPER.map(sourceObject, Destination.class, Test2Class.class);
+            assertThat(destination.list()).isNull();
+            assertThat(destination.list2()).hasSize(1);
+        }
+        {
+            Destination destination = MAPPER.map(sourceObject, Destination.class);
+            assertThat(destination.list()).hasSize(1);
+            assertThat(destination.list2()).hasSize(1);
+        }
+    }
+
+
    @Test
    void getMappedDestinationProperties() {
        assertThat(MAPPER.getMappedDestinationProperties(
@@ -144,6 +373,15 @@ class MapperTest {
     }
 
 
+    @Test
+    void customMapperForDeclaringClassDoesNotPreventDecoding() throws Exception {
+        Mapper mapper = MAPPER.withCustomMapper(Object.class, JsonPointDestination.class, (o, f) -> Optional.empty());
+        JsonNode json = MAPPER.objectMapper().readTree("{\"location\": {\"x\": 1.5, \"y\": 2}}");
+        assertThat(mapper.map(json, JsonPointDestination.class).location().x()).isEqualTo(1.5);
+        assertThat(mapper.explain(json.getClass(), JsonPointDestination.class).fields().get(0).conversions())
+            .contains("decode json as " + TypedDestination.Point.class.getTypeName());
+    }
+
     @Test
     void customMappingForList() {
 
@@ -179,6 +417,157 @@ class MapperTest {
     }
 
 
+    @Test
+    void typedJson() {
+        SourceObject sourceObject = new SourceObject();
+        sourceObject.json("""
+            {
+              "scores": [3, 1, 2],
+              "tags": ["a", "b", "a"],
+              "counts": {"x": 1, "y": 2},
+              "location": {"x": 1.5, "y": -2, "z": 0}
+            }
+            """.getBytes(StandardCharsets.UTF_8));
+
+        TypedDestination destination = MAPPER.map(sourceObject, TypedDestination.class);
+        assertThat(destination.scores()).containsExactly(3, 1, 2);
+        assertThat(destination.tags()).containsExactlyInAnyOrder("a", "b");
+        assertThat(destination.counts()).containsExactly(Map.entry("x", 1), Map.entry("y", 2));
+        assertThat(destination.location().x()).isEqualTo(1.5);
+        assertThat(destination.location().y()).isEqualTo(-2);
+    }
+
+    @Test
+    void expensiveFields() {
+        final AtomicInteger evaluations = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Mapper mapper = MAPPER.withExpensiveFields(new ExpensiveFields(task -> {
+                evaluations.incrementAndGet();
+                executor.execute(task);
+            }));
+            SourceObject sourceObject = new SourceObject();
+            sourceObject.json("""
+                {
+                  "tags": ["a"],
+                  "location": {"x": 1.5, "y": -2}
+                }
+                """.getBytes(StandardCharsets.UTF_8));
+            TypedDestination destination = mapper.map(sourceObject, TypedDestination.class);
+            assertThat(evaluations.get()).isEqualTo(1);
+            assertThat(destination.tags()).containsExactly("a");
+            assertThat(destination.location().x()).isEqualTo(1.5);
+            assertThat(mapper.explain(SourceObject.class, TypedDestination.class).fields())
+                .anyMatch(f -> f.destinationField().equals("location") && f.conversions().contains("evaluate concurrently"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void containers() {
+        SourceObject sourceObject = new SourceObject();
+        sourceObject.moreJson("""
+            {
+              "broadcasters": [
+                 {"resolved_value": "VPRO"},
+                 {"resolved_value": "EO"},
+                 {"resolved_value": "VPRO"}
+              ],
+              "byKey": {
+                 "b": {"resolved_value": "EO"},
+                 "a": {"resolved_value": "VPRO"}
+              }
+            }
+            """);
+        ContainerDestination destination = MAPPER.map(sourceObject, ContainerDestination.class);
+        assertThat(destination.broadcasterSet()).extracting(SubSourceObject::broadcaster2).containsExactly("VPRO", "EO");
+        assertThat(destination.broadcasterArray()).extracting(SubSourceObject::broadcaster2).containsExactly("VPRO", "EO", "VPRO");
+        assertThat(destination.broadcasterCollection()).extracting(SubSourceObject::broadcaster2).containsExactly("VPRO", "EO", "VPRO");
+        assertThat(destination.broadcasterMap().keySet()).containsExactly("a", "b");
+        assertThat(destination.broadcasterMap().get("b").broadcaster2()).isEqualTo("EO");
+    }
+
+    @Test
+    void mapInto() {
+        final DestinationPool pool = new DestinationPool(100);
+        final Mapper mapper = MAPPER.withDestinationPool(pool);
+        final SourceObject first = new SourceObject();
+        first.moreJson("""
+            {
+              "broadcasters": [{"resolved_value": "VPRO"}, {"resolved_value": "EO"}],
+              "byKey": {"a": {"resolved_value": "VPRO"}}
+            }
+            """);
+        final SourceObject second = new SourceObject();
+        second.moreJson("""
+            {
+              "broadcasters": [{"resolved_value": "KRO"}]
+            }
+            """);
+        final ContainerDestination destination = mapper.mapInto(first, new ContainerDestination());
+        final Collection<? extends SubSourceObject> collection = destination.broadcasterCollection();
+        final Set<SubSourceObject> set = destination.broadcasterSet();
+        assertThat(collection).extracting(SubSourceObject::broadcaster2).containsExactly("VPRO", "EO");
+        final long misses = pool.misses();
+
+        mapper.mapInto(second, destination);
+        assertThat(destination.broadcasterCollection()).isSameAs(collection);
+        assertThat(destination.broadcasterSet()).isSameAs(set);
+        assertThat(collection).extracting(SubSourceObject::broadcaster2).containsExactly("KRO");
+        assertThat(set).extracting(SubSourceObject::broadcaster2).containsExactly("KRO");
+        assertThat(destination.broadcasterArray()).extracting(SubSourceObject::broadcaster2).containsExactly("KRO");
+        // not in the second source, so reset
+        assertThat(destination.broadcasterMap()).isEmpty();
+        assertThat(pool.hits()).isGreaterThan(0);
+        assertThat(pool.misses()).isEqualTo(misses);
+    }
+
+    @Test
+    void mapIntoForgetsDroppedObjects() {
+        // keeps no free objects at all
+        final DestinationPool pool = new DestinationPool(0);
+        final Mapper mapper = MAPPER.withDestinationPool(pool);
+        final Node parent = new Node("a");
+        final Node child = new Node("b");
+        child.children(List.of(new Node("c")));
+        parent.children(List.of(child));
+
+        final NodeDestination destination = mapper.mapInto(parent, new NodeDestination());
+        final List<NodeDestination> children = destination.children();
+        final List<NodeDestination> grandChildren = children.get(0).children();
+        assertThat(pool.adopted(grandChildren)).isTrue();
+
+        mapper.mapInto(new Node("d"), destination);
+        assertThat(destination.children()).isSameAs(children).isEmpty();
+        // the child was dropped by the pool, and its list with it
+        assertThat(pool.adopted(grandChildren)).isFalse();
+        assertThat(pool.size()).isZero();
+    }
+
+    @Test
+    void mapIntoLeavesSourceAlone() {
+        final TaggedSource first = new TaggedSource(new ArrayList<>(List.of("a", "b")));
+        final TaggedSource second = new TaggedSource(new ArrayList<>(List.of("c")));
+        for (Mapper mapper : List.of(MAPPER, MAPPER.withDestinationPool(new DestinationPool(10)))) {
+            final TaggedDestination destination = mapper.mapInto(first, new TaggedDestination());
+            final List<String> tags = destination.tags();
+            assertThat(tags).containsExactly("a", "b");
+
+            mapper.mapInto(second, destination);
+            assertThat(destination.tags()).containsExactly("c");
+            assertThat(first.tags()).containsExactly("a", "b");
+
+            mapper.mapInto(first, destination);
+            assertThat(destination.tags()).containsExactly("a", "b");
+            assertThat(second.tags()).containsExactly("c");
+            if (mapper.destinationPool() != null) {
+                // created by the mapper, so refilled
+                assertThat(destination.tags()).isSameAs(tags);
+            }
+        }
+    }
+
     @Test
     void enums() {
 
@@ -222,6 +611,404 @@ class MapperTest {
 
     }
 
+    @Test
+    void scalarFieldsDoNotAllocate() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ScalarSource source = new ScalarSource(3, 42L, 0.5, true, "foo");
+        ScalarDestination destination = new ScalarDestination();
+        // passed explicitly, otherwise every call would allocate an empty varargs array
+        Class<?>[] noGroups = new Class<?>[0];
+        for (int i = 0; i < 100_000; i++) {
+            MAPPER.map(source, destination, noGroups);
+        }
+        assertThat(destination.count()).isEqualTo(3);
+        assertThat(destination.id()).isEqualTo(42L);
+        assertThat(destination.score()).isEqualTo(0.5);
+        assertThat(destination.active()).isTrue();
+        assertThat(destination.name()).isEqualTo("foo");
+
+        int count = 10_000;
+        long before = threadMXBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < count; i++) {
+            MAPPER.map(source, destination, noGroups);
+        }
+        long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - before;
+        log.info("Allocated {} bytes for {} mappings", allocated, count);
+        assertThat(allocated / count).isLessThan(8);
+    }
+
+    @Test
+    void interned() {
+        SourceObject sourceObject = new SourceObject();
+        sourceObject.moreJson("""
+            { "broadcasters": [{"name": "VPRO"}, {"name": "TROS"}, {"name": "VPRO"}] }
+            """);
+        {
+            BroadcastersDestination destination = MAPPER.map(sourceObject, BroadcastersDestination.class);
+            assertThat(destination.broadcasters()).extracting(InternedBroadcaster::name).containsExactly("VPRO", "TROS", "VPRO");
+            assertThat(destination.broadcasters().get(0)).isNotSameAs(destination.broadcasters().get(2));
+        }
+        {
+            InternCache cache = new InternCache();
+            Mapper mapper = MAPPER.withInternCache(cache);
+            BroadcastersDestination destination = mapper.map(sourceObject, BroadcastersDestination.class);
+            assertThat(destination.broadcasters()).extracting(InternedBroadcaster::name).containsExactly("VPRO", "TROS", "VPRO");
+            assertThat(destination.broadcasters().get(0)).isSameAs(destination.broadcasters().get(2));
+
+            BroadcastersDestination another = mapper.map(sourceObject, BroadcastersDestination.class);
+            assertThat(another.broadcasters().get(1)).isSameAs(destination.broadcasters().get(1));
+            log.info("{}", cache);
+            assertThat(cache.size()).isEqualTo(2);
+            assertThat(cache.misses()).isEqualTo(2);
+            assertThat(cache.hits()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void graph() {
+        Node a = new Node("a");
+        Node b = new Node("b");
+        Node c = new Node("c");
+        a.next(b);
+        b.next(a);
+        a.other(c);
+        b.other(c);
+
+        NodeDestination destination = MAPPER.map(a, NodeDestination.class);
+        assertThat(destination.name()).isEqualTo("a");
+        assertThat(destination.next().name()).isEqualTo("b");
+        assertThat(destination.next().next()).isSameAs(destination);
+        assertThat(destination.other().name()).isEqualTo("c");
+        assertThat(destination.next().other()).isSameAs(destination.other());
+    }
+
+    @Test
+    void listOfOtherElementsIsNotCopied() {
+        Node a = new Node("a");
+        a.children(List.of(new Node("b"), new Node("c")));
+
+        NodeDestination destination = MAPPER.map(a, NodeDestination.class);
+        assertThat(destination.children())
+            .hasOnlyElementsOfType(NodeDestination.class)
+            .extracting(NodeDestination::name)
+            .containsExactly("b", "c");
+        assertThat(MAPPER.explain(Node.class, NodeDestination.class).fields())
+            .filteredOn(f -> f.destinationField().equals("children"))
+            .extracting(Explanation.FieldExplanation::access)
+            .containsExactly(Explanation.Access.FIELD);
+    }
+
+    @Test
+    void deepGraph() {
+        Node first = new Node("0");
+        Node node = first;
+        int depth = 100_000;
+        for (int i = 1; i < depth; i++) {
+            Node next = new Node(String.valueOf(i));
+            node.next(next);
+            node = next;
+        }
+
+        NodeDestination destination = MAPPER.map(first, NodeDestination.class);
+        int count = 0;
+        NodeDestination last = destination;
+        for (NodeDestination d = destination; d != null; d = d.next()) {
+            last = d;
+            count++;
+        }
+        assertThat(count).isEqualTo(depth);
+        assertThat(last.name()).isEqualTo(String.valueOf(depth - 1));
+    }
+
+    @Test
+    void resultCache() {
+        MappingResultCache cache = new MappingResultCache(2);
+        Mapper mapper = MAPPER.withResultCache(cache);
+        VersionedSource source = new VersionedSource(1, 100L, "foo");
+
+        VersionedDestination destination = mapper.map(source, VersionedDestination.class);
+        assertThat(destination.title()).isEqualTo("foo");
+        assertThat(mapper.map(source, VersionedDestination.class)).isSameAs(destination);
+
+        source.title("bar");
+        // version not changed, so not mapped again
+        assertThat(mapper.map(source, VersionedDestination.class).title()).isEqualTo("foo");
+
+        source.lastModified(101L);
+        VersionedDestination newVersion = mapper.map(source, VersionedDestination.class);
+        assertThat(newVersion.title()).isEqualTo("bar");
+
+        // groups are part of the key
+        VersionedDestination withGroup = mapper.map(source, VersionedDestination.class, Test1Class.class);
+        assertThat(withGroup).isNotSameAs(newVersion);
+        assertThat(withGroup.lastModified()).isEqualTo(101L);
+
+        // without version, not cached
+        source.lastModified(null);
+        assertThat(mapper.map(source, VersionedDestination.class)).isNotSameAs(mapper.map(source, VersionedDestination.class));
+
+        // the source class is part of the key
+        Mapper other = MAPPER.withResultCache(new MappingResultCache(10));
+        assertThat(other.map(new VersionedSource(2, 100L, "one"), VersionedDestination.class).title()).isEqualTo("one");
+        assertThat(other.map(new OtherVersionedSource(2, 100L, "other"), VersionedDestination.class).title()).isEqualTo("other");
+
+        log.info("{}", cache);
+        // maximal size is 2, least recently used ones are evicted
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.hits()).isEqualTo(2);
+    }
+
+    @Test
+    void stringPool() {
+        {
+            DeduplicatingDestination destination1 = MAPPER.map(stringPoolSource(), DeduplicatingDestination.class);
+            DeduplicatingDestination destination2 = MAPPER.map(stringPoolSource(), DeduplicatingDestination.class);
+            assertThat(destination1.title()).isEqualTo(destination2.title()).isNotSameAs(destination2.title());
+            // annotated with @Deduplicate
+            assertThat(destination1.description()).isEqualTo("description").isSameAs(destination2.description());
+        }
+        {
+            StringPool pool = new StringPool(100);
+            Mapper mapper = MAPPER.withStringPool(pool);
+            Destination destination1 = mapper.map(stringPoolSource(), Destination.class);
+            Destination destination2 = mapper.map(stringPoolSource(), Destination.class);
+            assertThat(destination1.title()).isEqualTo("foobar").isSameAs(destination2.title());
+            log.info("{}", pool);
+            assertThat(pool.size()).isEqualTo(2);
+            assertThat(pool.hitRate()).isEqualTo(0.5);
+        }
+    }
+
+    private static SourceObject stringPoolSource() {
+        SourceObject sourceObject = new SourceObject();
+        sourceObject.json("{'title': 'foobar'}".getBytes(StandardCharsets.UTF_8));
+        sourceObject.moreJson("{'a': {'b': {'value': 'description'}}}");
+        return sourceObject;
+    }
+
+    @Test
+    void mapPublisher() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (SubmissionPublisher<ScalarSource> sources = new SubmissionPublisher<>()) {
+            Flow.Publisher<ScalarDestination> mapped = MAPPER.mapPublisher(sources, ScalarDestination.class, 4, executor, true);
+            CompletableFuture<List<ScalarDestination>> result = new CompletableFuture<>();
+            mapped.subscribe(new Flow.Subscriber<>() {
+                final List<ScalarDestination> list = new ArrayList<>();
+                Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(ScalarDestination item) {
+                    list.add(item);
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    result.completeExceptionally(throwable);
+                }
 
+                @Override
+                public void onComplete() {
+                    result.complete(list);
+                }
+            });
+            for (int i = 0; i < 1000; i++) {
+                sources.submit(new ScalarSource(i, i, i, true, "" + i));
+            }
+            sources.close();
+            assertThat(result.get(10, TimeUnit.SECONDS)).extracting(ScalarDestination::count)
+                .containsExactlyElementsOf(() -> java.util.stream.IntStream.range(0, 1000).iterator());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void mapPublisherError() throws Exception {
+        try (SubmissionPublisher<Object> sources = new SubmissionPublisher<>()) {
+            Flow.Publisher<ThrowingDestination> mapped = MAPPER.mapPublisher(sources, ThrowingDestination.class, 2);
+            CompletableFuture<Throwable> error = new CompletableFuture<>();
+            mapped.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(ThrowingDestination item) {
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    error.complete(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    error.complete(null);
+                }
+            });
+            sources.submit(new Object());
+            assertThat(error.get(10, TimeUnit.SECONDS)).isInstanceOf(MapException.class);
+        }
+    }
+
+    @Test
+    void mapFromMap() {
+        Map<String, Object> source = Map.of(
+            "title", "foo",
+            "id", 1L,
+            "json", "{'description': 'bar', 'broadcaster': 'VPRO'}"
+        );
+        RowDestination destination = MAPPER.map(source, RowDestination.class);
+        assertThat(destination.title()).isEqualTo("foo");
+        assertThat(destination.id()).isEqualTo(1L);
+        assertThat(destination.description()).isEqualTo("bar");
+        assertThat(destination.broadcaster()).isEqualTo("VPRO");
+    }
+
+    @Test
+    void mapFromRecord() {
+        SourceRecord source = new SourceRecord("foo", 1L, "{'description': 'bar'}");
+        RowDestination destination = MAPPER.map(source, RowDestination.class);
+        assertThat(destination.title()).isEqualTo("foo");
+        assertThat(destination.id()).isEqualTo(1L);
+        assertThat(destination.description()).isEqualTo("bar");
+        assertThat(destination.broadcaster()).isNull();
+    }
+
+    @Test
+    void mapResultSet() throws Exception {
+        ResultSet resultSet = resultSet(List.of("TITLE", "ID", "JSON"),
+            List.of("foo", 1L, "{'description': 'bar', 'broadcaster': 'VPRO'}"),
+            List.of("foo2", 2L, "{'description': 'bar2', 'broadcaster': 'TROS'}")
+        );
+        List<BinaryBlob> parsed = new ArrayList<>();
+        Mapper mapper = MAPPER.withBinaryWriteBack(parsed::add);
+        try (Stream<RowDestination> stream = mapper.mapResultSet(resultSet, RowDestination.class)) {
+            List<RowDestination> list = stream.toList();
+            assertThat(list).extracting(RowDestination::title).containsExactly("foo", "foo2");
+            assertThat(list).extracting(RowDestination::id).containsExactly(1L, 2L);
+            assertThat(list).extracting(RowDestination::description).containsExactly("bar", "bar2");
+            assertThat(list).extracting(RowDestination::broadcaster).containsExactly("VPRO", "TROS");
+        }
+        // json column parsed once per row
+        assertThat(parsed).hasSize(2);
+    }
+
+    @Test
+    void mapResultSetsInterleaved() throws Exception {
+        AtomicInteger finds = new AtomicInteger();
+        ResultSet first = resultSet(finds, List.of("TITLE", "ID", "JSON"),
+            List.of("foo", 1L, "{'description': 'bar'}"),
+            List.of("foo2", 2L, "{'description': 'bar2'}")
+        );
+        ResultSet second = resultSet(finds, List.of("JSON", "TITLE", "ID"),
+            List.of("{'description': 'baz'}", "qux", 3L),
+            List.of("{'description': 'baz2'}", "qux2", 4L)
+        );
+        Iterator<RowDestination> firstRows = MAPPER.mapResultSet(first, RowDestination.class).iterator();
+        Iterator<RowDestination> secondRows = MAPPER.mapResultSet(second, RowDestination.class).iterator();
+        List<RowDestination> list = List.of(firstRows.next(), secondRows.next(), firstRows.next(), secondRows.next());
+        assertThat(list).extracting(RowDestination::title).containsExactly("foo", "qux", "foo2", "qux2");
+        assertThat(list).extracting(RowDestination::id).containsExactly(1L, 3L, 2L, 4L);
+        assertThat(list).extracting(RowDestination::description).containsExactly("bar", "baz", "bar2", "baz2");
+        // every column resolved once per result set
+        assertThat(finds.get()).isEqualTo(6);
+    }
+
+    /**
+     * A minimal forward only {@link ResultSet}, with case-insensitive column labels
+     */
+    private static ResultSet resultSet(List<String> columns, List<?>... rows) {
+        return resultSet(new AtomicInteger(), columns, rows);
+    }
+
+    /**
+     * @param finds Counts the calls to {@link ResultSet#findColumn(String)}
+     */
+    private static ResultSet resultSet(AtomicInteger finds, List<String> columns, List<?>... rows) {
+        int[] row = {-1};
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(MapperTest.class.getClassLoader(), new Class<?>[] {ResultSetMetaData.class}, (proxy, method, args) ->
+            switch (method.getName()) {
+                case "getColumnCount" -> columns.size();
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        return (ResultSet) Proxy.newProxyInstance(MapperTest.class.getClassLoader(), new Class<?>[] {ResultSet.class}, (proxy, method, args) ->
+            switch (method.getName()) {
+                case "next" -> ++row[0] < rows.length;
+                case "getMetaData" -> metaData;
+                case "findColumn" -> {
+                    finds.incrementAndGet();
+                    for (int i = 0; i < columns.size(); i++) {
+                        if (columns.get(i).equalsIgnoreCase((String) args[0])) {
+                            yield i + 1;
+                        }
+                    }
+                    throw new SQLException("No column " + args[0]);
+                }
+                case "getObject" -> rows[row[0]].get((Integer) args[0] - 1);
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    @Test
+    void explain() {
+        Explanation explanation = MAPPER.explain(ExtendedSourceObject.class, Destination.class);
+        log.info("{}", explanation);
+        assertThat(explanation.fields()).extracting(Explanation.FieldExplanation::destinationField)
+            .containsExactly("title", "description", "moreJson", "id", "list", "list2", "sub", "subs", "enumValue", "localDate");
+        Map<String, Explanation.FieldExplanation> byName = new HashMap<>();
+        explanation.fields().forEach(f -> byName.put(f.destinationField(), f));
+
+        assertThat(byName.get("id").access()).isEqualTo(Explanation.Access.PATH);
+        assertThat(byName.get("id").path()).containsExactly("id");
+        assertThat(byName.get("description").access()).isEqualTo(Explanation.Access.JSON_POINTER);
+        assertThat(byName.get("subs").access()).isEqualTo(Explanation.Access.JSON_PATH);
+        assertThat(byName.get("subs").conversions()).containsExactly("decode json as java.util.List<org.meeuw.mapping.SubDestination>");
+        assertThat(byName.get("list").conversions()).contains("sub map elements to SubSourceObject");
+        assertThat(byName.get("localDate").conversions()).contains("xml adapter LocalDateXmlAdapter");
+        assertThat(byName.get("description").blob()).isEqualTo(byName.get("localDate").blob()).isEqualTo("moreJson");
+
+        assertThat(MAPPER.explain(SourceObject.class, DeduplicatingDestination.class).fields())
+            .filteredOn(f -> f.destinationField().equals("description"))
+            .singleElement()
+            .satisfies(f -> assertThat(f.conversions()).contains("deduplicate"));
+
+        assertThat(MAPPER.explain(ScalarSource.class, ScalarDestination.class).fields())
+            .extracting(Explanation.FieldExplanation::access)
+            .containsOnly(Explanation.Access.DIRECT_COPY);
+
+        // groups are taken into account
+        assertThat(MAPPER.explain(ExtendedSourceObject.class, Destination.class, Test1Class.class).fields())
+            .extracting(Explanation.FieldExplanation::destinationField)
+            .contains("list").doesNotContain("list2");
+        assertThat(MAPPER.getMappedDestinationProperties(ExtendedSourceObject.class, Destination.class, Test1Class.class).keySet())
+            .contains("list").doesNotContain("list2");
+    }
+
+    @Test
+    void sampler() {
+        List<MappingSampler.Sample> samples = new ArrayList<>();
+        Mapper mapper = MAPPER.withSampler(new MappingSampler(1, Duration.ZERO, samples::add));
+        mapper.map(stringPoolSource(), Destination.class);
+        assertThat(samples).hasSize(1);
+        MappingSampler.Sample sample = samples.get(0);
+        log.info("{}", sample);
+        assertThat(sample.destinationClass()).isEqualTo(Destination.class);
+        assertThat(sample.fields()).extracting(MappingSampler.FieldTiming::field).contains("title", "description");
+
+        samples.clear();
+        MAPPER.withSampler(new MappingSampler(1, Duration.ofHours(1), samples::add)).map(stringPoolSource(), Destination.class);
+        assertThat(samples).isEmpty();
+    }
 
 }
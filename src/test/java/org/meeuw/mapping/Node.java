@@ -0,0 +1,26 @@
+package org.meeuw.mapping;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class Node {
+
+    String name;
+
+    Node next;
+
+    Node other;
+
+    List<Node> children;
+
+    public Node() {
+    }
+
+    public Node(String name) {
+        this.name = name;
+    }
+}
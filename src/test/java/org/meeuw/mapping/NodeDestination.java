@@ -0,0 +1,23 @@
+package org.meeuw.mapping;
+
+import lombok.Getter;
+
+import java.util.List;
+
+import org.meeuw.mapping.annotations.Source;
+
+@Getter
+public class NodeDestination {
+
+    @Source(sourceClass = Node.class)
+    String name;
+
+    @Source(sourceClass = Node.class)
+    NodeDestination next;
+
+    @Source(sourceClass = Node.class)
+    NodeDestination other;
+
+    @Source(sourceClass = Node.class)
+    List<NodeDestination> children;
+}
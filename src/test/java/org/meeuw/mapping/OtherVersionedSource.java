@@ -0,0 +1,14 @@
+package org.meeuw.mapping;
+
+import org.meeuw.mapping.annotations.Versioned;
+
+/**
+ * Another versioned source, of which the ids may coincide with those of {@link VersionedSource}.
+ */
+@Versioned(id = "id", version = "lastModified")
+public class OtherVersionedSource extends VersionedSource {
+
+    public OtherVersionedSource(long id, Long lastModified, String title) {
+        super(id, lastModified, title);
+    }
+}
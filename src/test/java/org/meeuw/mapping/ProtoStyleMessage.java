@@ -0,0 +1,71 @@
+package org.meeuw.mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.meeuw.mapping.annotations.Source;
+
+/**
+ * An immutable class with a builder like protobuf generates: setters and 'addAll' methods, and fields with other names.
+ */
+public final class ProtoStyleMessage {
+
+    @Source(sourceClass = SourceObject.class)
+    private final String title;
+
+    @Source(sourceClass = SourceObject.class, field = "moreJson", jsonPointer = "/tags")
+    private final List<String> tags;
+
+    /**
+     * The builder offers no way to set this.
+     */
+    @Source(sourceClass = SourceObject.class, field = "title")
+    private final String subtitle;
+
+    private ProtoStyleMessage(Builder builder) {
+        this.title = builder.title_;
+        this.tags = List.copyOf(builder.tags_);
+        this.subtitle = null;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public String getSubtitle() {
+        return subtitle;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private String title_ = "";
+        private final List<String> tags_ = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder setTitle(String value) {
+            if (value == null) {
+                throw new NullPointerException();
+            }
+            this.title_ = value;
+            return this;
+        }
+
+        public Builder addAllTags(Iterable<String> values) {
+            values.forEach(tags_::add);
+            return this;
+        }
+
+        public ProtoStyleMessage build() {
+            return new ProtoStyleMessage(this);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.meeuw.mapping;
+
+import lombok.Getter;
+
+import org.meeuw.mapping.annotations.Source;
+
+@Getter
+public class RowDestination {
+
+    @Source
+    String title;
+
+    @Source
+    long id;
+
+    @Source(field = "json", jsonPointer = "/description")
+    String description;
+
+    @Source(field = "json", jsonPointer = "/broadcaster")
+    String broadcaster;
+}
@@ -0,0 +1,24 @@
+package org.meeuw.mapping;
+
+import lombok.Data;
+
+import org.meeuw.mapping.annotations.Source;
+
+@Data
+public class ScalarDestination {
+
+    @Source(sourceClass = ScalarSource.class)
+    int count;
+
+    @Source(sourceClass = ScalarSource.class)
+    long id;
+
+    @Source(sourceClass = ScalarSource.class)
+    double score;
+
+    @Source(sourceClass = ScalarSource.class)
+    boolean active;
+
+    @Source(sourceClass = ScalarSource.class)
+    String name;
+}
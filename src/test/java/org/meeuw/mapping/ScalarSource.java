@@ -0,0 +1,19 @@
+package org.meeuw.mapping;
+
+import lombok.*;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScalarSource {
+
+    int count;
+
+    long id;
+
+    double score;
+
+    boolean active;
+
+    String name;
+}
@@ -0,0 +1,4 @@
+package org.meeuw.mapping;
+
+public record SourceRecord(String title, long id, String json) {
+}
@@ -0,0 +1,14 @@
+package org.meeuw.mapping;
+
+import lombok.Data;
+
+import java.util.List;
+
+import org.meeuw.mapping.annotations.Source;
+
+@Data
+public class TaggedDestination {
+
+    @Source(sourceClass = TaggedSource.class)
+    List<String> tags;
+}
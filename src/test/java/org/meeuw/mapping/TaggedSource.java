@@ -0,0 +1,13 @@
+package org.meeuw.mapping;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaggedSource {
+
+    List<String> tags;
+}
@@ -0,0 +1,38 @@
+package org.meeuw.mapping;
+
+import lombok.Data;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.meeuw.mapping.annotations.Expensive;
+import org.meeuw.mapping.annotations.Source;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+/**
+ * Fields of types that are decoded from json by jackson directly.
+ */
+@Data
+public class TypedDestination {
+
+    @Source(sourceClass = SourceObject.class, field = "json", jsonPointer = "/scores")
+    int[] scores;
+
+    @Source(sourceClass = SourceObject.class, field = "json", jsonPointer = "/tags")
+    Set<String> tags;
+
+    @Source(sourceClass = SourceObject.class, field = "json", jsonPointer = "/counts")
+    Map<String, Integer> counts;
+
+    @Source(sourceClass = SourceObject.class, field = "json", jsonPath = "location")
+    @Expensive
+    Point location;
+
+    @Data
+    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+    public static class Point {
+        double x;
+        double y;
+    }
+}
@@ -0,0 +1,17 @@
+package org.meeuw.mapping;
+
+import org.meeuw.mapping.annotations.Source;
+
+public class ValidatingDestination {
+
+    @Source(sourceClass = SourceObject.class)
+    String title;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title.trim();
+    }
+}
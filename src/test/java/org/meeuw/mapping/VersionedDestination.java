@@ -0,0 +1,15 @@
+package org.meeuw.mapping;
+
+import lombok.Getter;
+
+import org.meeuw.mapping.annotations.Source;
+
+@Getter
+public class VersionedDestination {
+
+    @Source(sourceClass = VersionedSource.class)
+    String title;
+
+    @Source(sourceClass = VersionedSource.class, groups = Test1Class.class)
+    Long lastModified;
+}
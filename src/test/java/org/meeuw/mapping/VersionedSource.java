@@ -0,0 +1,18 @@
+package org.meeuw.mapping;
+
+import lombok.*;
+
+import org.meeuw.mapping.annotations.Versioned;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Versioned(id = "id", version = "lastModified")
+public class VersionedSource {
+
+    long id;
+
+    Long lastModified;
+
+    String title;
+}
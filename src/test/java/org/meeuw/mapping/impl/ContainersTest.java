@@ -0,0 +1,67 @@
+package org.meeuw.mapping.impl;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.meeuw.mapping.SubSourceObject;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContainersTest {
+
+    static class Fields {
+        List<? extends SubSourceObject> wildcard;
+        long[] series;
+        int[] ints;
+        boolean[] flags;
+        Map<String, Integer> counts;
+        Map<Integer, String> notStringKeys;
+        ArrayDeque<String> deque;
+        String notAContainer;
+    }
+
+    @Test
+    void forField() throws NoSuchFieldException {
+        Containers.Container wildcard = Containers.forField(Fields.class.getDeclaredField("wildcard"));
+        assertThat(wildcard.kind()).isEqualTo(Containers.Kind.LIST);
+        assertThat(wildcard.elementType()).isEqualTo(SubSourceObject.class);
+        assertThat(wildcard.mappableElements()).isTrue();
+        assertThat(Containers.forField(Fields.class.getDeclaredField("wildcard"))).isSameAs(wildcard);
+
+        assertThat(Containers.forField(Fields.class.getDeclaredField("series")).isPrimitiveArray()).isTrue();
+        assertThat(Containers.forField(Fields.class.getDeclaredField("counts")).elementType()).isEqualTo(Integer.class);
+        assertThat(Containers.forField(Fields.class.getDeclaredField("notStringKeys"))).isNull();
+        assertThat(Containers.forField(Fields.class.getDeclaredField("deque"))).isNull();
+        assertThat(Containers.forField(Fields.class.getDeclaredField("notAContainer"))).isNull();
+    }
+
+    @Test
+    void primitiveArrays() throws NoSuchFieldException, JsonProcessingException {
+        Containers.Container series = Containers.forField(Fields.class.getDeclaredField("series"));
+        assertThat((long[]) series.fromJson(JsonUtil.MAPPER.readTree("[1, 2, 3]"))).containsExactly(1L, 2L, 3L);
+        assertThat((long[]) series.convert(List.of(4, 5L), o -> null)).containsExactly(4L, 5L);
+        // elements that don't fit are not silently turned into 0 or false
+        assertThat((long[]) series.fromJson(JsonUtil.MAPPER.readTree("[1, null, \"x\", 4]"))).containsExactly(1L, 0L, 0L, 4L);
+        assertThat((long[]) series.fromJson(JsonUtil.MAPPER.readTree("[1, 2.5]"))).containsExactly(1L, 0L);
+        Containers.Container ints = Containers.forField(Fields.class.getDeclaredField("ints"));
+        assertThat((int[]) ints.fromJson(JsonUtil.MAPPER.readTree("[1, 2]"))).containsExactly(1, 2);
+        assertThat((int[]) ints.fromJson(JsonUtil.MAPPER.readTree("[1, 12345678901]"))).containsExactly(1, 0);
+        Containers.Container flags = Containers.forField(Fields.class.getDeclaredField("flags"));
+        assertThat((boolean[]) flags.fromJson(JsonUtil.MAPPER.readTree("[true, false]"))).containsExactly(true, false);
+        assertThat((boolean[]) flags.fromJson(JsonUtil.MAPPER.readTree("[true, 1]"))).containsExactly(true, false);
+
+        Containers.Container counts = Containers.forField(Fields.class.getDeclaredField("counts"));
+        assertThat(counts.convert(Map.of("a", 1L), o -> null)).isEqualTo(Map.of("a", 1));
+    }
+
+    @Test
+    void numbersAreNotTruncated() throws NoSuchFieldException {
+        Containers.Container ints = Containers.forField(Fields.class.getDeclaredField("ints"));
+        assertThat((int[]) ints.convert(List.of(1, 3.7, 1L << 40, 2.0, 3L), o -> null)).containsExactly(1, 2, 3);
+
+        Containers.Container counts = Containers.forField(Fields.class.getDeclaredField("counts"));
+        assertThat(counts.convert(Map.of("a", 1L, "b", 3.7, "c", Long.MAX_VALUE), o -> null)).isEqualTo(Map.of("a", 1));
+    }
+}
@@ -0,0 +1,39 @@
+package org.meeuw.mapping.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GroupsTest {
+
+    @Test
+    void moreGroupsThanFitInAMask() {
+        // array classes of increasing dimension, as many distinct (unrelated) group classes
+        final List<Class<?>> groups = new ArrayList<>();
+        Class<?> c = Runnable.class;
+        for (int i = 0; i < Groups.INLINE * 2; i++) {
+            groups.add(c);
+            c = c.arrayType();
+        }
+        for (Class<?> group : groups) {
+            assertThat(Groups.matches(Groups.mask(group), Groups.requested(group))).describedAs(group.getName()).isTrue();
+        }
+        final Class<?> first = groups.get(0);
+        final Class<?> last = groups.get(groups.size() - 1);
+        final Class<?> beforeLast = groups.get(groups.size() - 2);
+        assertThat(Groups.matches(Groups.mask(last), Groups.requested(beforeLast))).isFalse();
+        assertThat(Groups.matches(Groups.mask(first), Groups.requested(last))).isFalse();
+        assertThat(Groups.matches(Groups.mask(last), Groups.requested(first))).isFalse();
+        assertThat(Groups.matches(Groups.mask(first, last), Groups.requested(last))).isTrue();
+        assertThat(Groups.matches(Groups.mask(beforeLast), Groups.requested(first, last))).isFalse();
+        assertThat(Groups.matches(Groups.mask(beforeLast), Groups.requested(first, beforeLast))).isTrue();
+        // supertypes of the requested groups match too
+        assertThat(Groups.matches(Groups.mask(Object.class), Groups.requested(last))).isTrue();
+        // masks identify sets of groups
+        assertThat(Groups.requested(first, last)).isEqualTo(Groups.requested(last, first));
+        assertThat(Groups.requested(last)).isNotEqualTo(Groups.requested(beforeLast));
+    }
+}
@@ -0,0 +1,32 @@
+package org.meeuw.mapping.impl;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonStreamsTest {
+
+    @Test
+    void regionIsRecordPerLine(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("test.ndjson");
+        Files.writeString(file, "{\"a\": 1}\n[1, 2]\n{\"a\": 2}\n");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // a region starting at the second line, as trySplit may produce
+            JsonStreams.NdjsonFileSpliterator region = new JsonStreams.NdjsonFileSpliterator(JsonUtil.MAPPER, channel, 9, channel.size());
+            List<JsonNode> records = new ArrayList<>();
+            region.forEachRemaining(records::add);
+            assertThat(records).hasSize(2);
+            assertThat(records.get(0).isArray()).isTrue();
+            assertThat(region.tryAdvance(records::add)).isFalse();
+        }
+    }
+}
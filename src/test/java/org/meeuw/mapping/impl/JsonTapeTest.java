@@ -0,0 +1,93 @@
+package org.meeuw.mapping.impl;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.meeuw.mapping.BudgetExceededException;
+import org.meeuw.mapping.JsonMappers;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonTapeTest {
+
+    static final ObjectMapper MAPPER = JsonMappers.strict();
+
+    static final String JSON = """
+        {
+          "title": "foo",
+          "escaped": "a \\"quoted\\" \\u00e9",
+          "unicode": "caf\u00e9",
+          "k\u00e9y": 1,
+          "with/slash": true,
+          "numbers": [0, -12, 123456789, 12345678901, 1.5, -2e3],
+          "empty": {},
+          "none": [],
+          "nested": {"a": [{"b": null}, {"b": false, "c": {"d": "deep"}}]},
+          "dup": 1,
+          "dup": 2
+        }
+        """;
+
+    @Test
+    void sameAsTree() throws Exception {
+        final JsonNode tree = MAPPER.readTree(JSON);
+        final JsonTape fromString = JsonTape.index(JSON, MAPPER, null);
+        final JsonTape fromBytes = JsonTape.index(JSON.getBytes(StandardCharsets.UTF_8), MAPPER, null);
+        assertThat(fromString).isNotSameAs(JsonTape.UNINDEXABLE);
+        for (String pointer : new String[] {
+            "", "/title", "/escaped", "/unicode", "/k\u00e9y", "/with~1slash", "/numbers", "/numbers/0", "/numbers/1", "/numbers/2", "/numbers/3",
+            "/numbers/4", "/numbers/5", "/numbers/6", "/empty", "/none", "/nested/a/0/b", "/nested/a/1", "/nested/a/1/c/d", "/nested/x", "/title/x", "/dup"}) {
+            assertThat(fromString.at(pointer)).describedAs(pointer).isEqualTo(tree.at(pointer));
+            assertThat(fromBytes.at(pointer)).describedAs(pointer).isEqualTo(tree.at(pointer));
+        }
+    }
+
+    @Test
+    void unindexable() {
+        for (String json : new String[] {"{'a': 1}", "{a: 1}", "// comment\n{}", "[1,]", "{\"a\": 1} {}", "[01]", "", "{\"a\" 1}", "[tru]"}) {
+            assertThat(JsonTape.index(json, MAPPER, null)).describedAs(json).isSameAs(JsonTape.UNINDEXABLE);
+        }
+    }
+
+    @Test
+    void malformedLikeTree() throws Exception {
+        for (String json : new String[] {
+            "{\"a\": 1.2.3e-+, \"b\": 5}", "[1.]", "[.5]", "[1e]", "[1e+]", "[-]", "[1.5e3.1]", "[\"\\x\"]", "[\"\\u12g4\"]", "[\"\\u12\"]"}) {
+            assertThatThrownBy(() -> MAPPER.readTree(json)).describedAs(json).isInstanceOf(JsonProcessingException.class);
+            assertThat(JsonTape.index(json, MAPPER, null)).describedAs(json).isSameAs(JsonTape.UNINDEXABLE);
+        }
+        for (String json : new String[] {"[1.5e3, -0.25E-2, 7e+1, 0]", "[\"\\\" \\\\ \\/ \\b \\f \\n \\r \\t \\u00E9\"]"}) {
+            final JsonTape tape = JsonTape.index(json, MAPPER, null);
+            assertThat(tape).describedAs(json).isNotSameAs(JsonTape.UNINDEXABLE);
+            assertThat(tape.at("")).describedAs(json).isEqualTo(MAPPER.readTree(json));
+        }
+    }
+
+    @Test
+    void depth() {
+        final ObjectMapper shallow = JsonMappers.strict();
+        shallow.getFactory().setStreamReadConstraints(StreamReadConstraints.builder().maxNestingDepth(2).build());
+        assertThat(JsonTape.index("[[1]]", shallow, null).at("/0/0").intValue()).isEqualTo(1);
+        assertThatThrownBy(() -> JsonTape.index("[[[1]]]", shallow, null))
+            .isInstanceOfSatisfying(BudgetExceededException.class, e -> assertThat(e.limit()).isEqualTo(BudgetExceededException.Limit.DEPTH));
+    }
+
+    @Test
+    void simplePath() {
+        assertThat(JsonTape.simplePath("subs")).isEqualTo(JsonPointer.compile("/subs"));
+        assertThat(JsonTape.simplePath("$.a.b[0]")).isEqualTo(JsonPointer.compile("/a/b/0"));
+        assertThat(JsonTape.simplePath("$['a.b']['c/d']")).isEqualTo(JsonPointer.compile("/a.b/c~1d"));
+        assertThat(JsonTape.simplePath("$")).isEqualTo(JsonPointer.compile(""));
+        assertThat(JsonTape.simplePath("$..a")).isNull();
+        assertThat(JsonTape.simplePath("a[*].b")).isNull();
+        assertThat(JsonTape.simplePath("a[?(@.b)]")).isNull();
+        assertThat(JsonTape.simplePath("a[0,1]")).isNull();
+    }
+}
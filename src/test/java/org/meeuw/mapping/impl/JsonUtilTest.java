@@ -2,16 +2,27 @@ package org.meeuw.mapping.impl;
 
 import lombok.extern.log4j.Log4j2;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Supplier;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.meeuw.mapping.*;
+import org.meeuw.mapping.annotations.JsonEncoding;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.jayway.jsonpath.*;
 import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
 import com.jayway.jsonpath.spi.json.JsonProvider;
@@ -19,6 +30,7 @@ import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
 import com.jayway.jsonpath.spi.mapper.MappingProvider;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.meeuw.mapping.Mapper.MAPPER;
 
 @Log4j2
@@ -169,6 +181,136 @@ class JsonUtilTest {
 
     }
 
+    @Test
+    void readTree(@TempDir Path dir) throws IOException {
+        byte[] bytes = "xx{'title': 'foobar'}".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer heap = ByteBuffer.wrap(bytes).position(2).slice();
+        assertThat(JsonUtil.readTree(heap, null).get("title").asText()).isEqualTo("foobar");
+        assertThat(heap.remaining()).isEqualTo(bytes.length - 2);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length - 2);
+        direct.put(bytes, 2, bytes.length - 2).flip();
+        assertThat(JsonUtil.readTree(direct, null).get("title").asText()).isEqualTo("foobar");
+        assertThat(direct.remaining()).isEqualTo(bytes.length - 2);
+
+        assertThat(JsonUtil.readTree(new StringBuilder("{'title': 'foobar'}"), null).get("title").asText()).isEqualTo("foobar");
+
+        Supplier<InputStream> supplier = () -> new ByteArrayInputStream(bytes, 2, bytes.length - 2);
+        assertThat(JsonUtil.readTree(supplier, null).get("title").asText()).isEqualTo("foobar");
+
+        Path file = dir.resolve("test.json");
+        Files.write(file, Arrays.copyOfRange(bytes, 2, bytes.length));
+        assertThat(JsonUtil.readTree(file, null).get("title").asText()).isEqualTo("foobar");
+    }
+
+
+    @Test
+    void binary() throws IOException {
+        JsonNode node = JsonUtil.MAPPER.readTree("{'title': 'foobar', 'sub': {'a': [1, 2]}}");
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(node);
+        byte[] cbor = new ObjectMapper(new CBORFactory()).writeValueAsBytes(node);
+        assertThat(JsonUtil.detectEncoding(smile)).isEqualTo(JsonEncoding.SMILE);
+        assertThat(JsonUtil.detectEncoding(cbor)).isEqualTo(JsonEncoding.CBOR);
+        assertThat(JsonUtil.detectEncoding("{}".getBytes(StandardCharsets.UTF_8))).isEqualTo(JsonEncoding.TEXT);
+        assertThat(JsonUtil.detectEncoding(ByteBuffer.wrap(smile))).isEqualTo(JsonEncoding.SMILE);
+
+        for (byte[] bytes : List.of(smile, cbor)) {
+            SourceObject sourceObject = new SourceObject();
+            sourceObject.json(bytes);
+            Destination destination = MAPPER.map(sourceObject, Destination.class);
+            assertThat(destination.title()).isEqualTo("foobar");
+        }
+    }
+
+    @Test
+    void binaryWriteBack() throws IOException {
+        List<BinaryBlob> blobs = new ArrayList<>();
+        Mapper mapper = MAPPER.withBinaryWriteBack(blobs::add);
+        SourceObject sourceObject = new SourceObject();
+        sourceObject.json("{'title': 'foobar'}".getBytes(StandardCharsets.UTF_8));
+        mapper.map(sourceObject, Destination.class);
+
+        assertThat(blobs).hasSize(1);
+        BinaryBlob blob = blobs.get(0);
+        assertThat(blob.original()).isSameAs(sourceObject.json());
+        assertThat(blob.sourceField().getName()).isEqualTo("json");
+        assertThat(blob.encoding()).isEqualTo(JsonEncoding.SMILE);
+
+        sourceObject.json(blob.bytes());
+        assertThat(mapper.map(sourceObject, Destination.class).title()).isEqualTo("foobar");
+        assertThat(blobs).hasSize(1);
+    }
+
+
+    @Test
+    void objectMapperPerMapper() {
+        Mapper strict = MAPPER.withObjectMapper(JsonMappers.strict());
+        SourceObject lenientSource = new SourceObject();
+        lenientSource.json("{'title': 'foobar'}".getBytes(StandardCharsets.UTF_8));
+        assertThat(MAPPER.map(lenientSource, Destination.class).title()).isEqualTo("foobar");
+        // the tree parsed by the lenient mapper is not reused
+        assertThatThrownBy(() -> strict.map(lenientSource, Destination.class))
+            .hasRootCauseInstanceOf(JsonProcessingException.class);
+
+        SourceObject strictSource = new SourceObject();
+        strictSource.json("{\"title\": \"foobar\"}".getBytes(StandardCharsets.UTF_8));
+        assertThat(strict.map(strictSource, Destination.class).title()).isEqualTo("foobar");
+        assertThat(JsonUtil.jsonPathConfiguration(strict)).isSameAs(JsonUtil.jsonPathConfiguration(strict));
+        assertThat(JsonUtil.jsonPathConfiguration(strict)).isNotSameAs(JsonUtil.jsonPathConfiguration(MAPPER));
+    }
+
+    @Test
+    void budgets() {
+        SourceObject source = new SourceObject();
+        source.json("{\"title\": \"foobar\", \"subs\": [{\"a\": \"x\"}, {\"a\": \"y\"}]}".getBytes(StandardCharsets.UTF_8));
+        assertThat(MAPPER.withBudget(MappingBudget.UNLIMITED.withMaxBlobBytes(1000).withMaxDepth(3)).map(source, Destination.class).title()).isEqualTo("foobar");
+
+        assertThatThrownBy(() -> MAPPER.withBudget(MappingBudget.UNLIMITED.withMaxBlobBytes(10)).map(source, Destination.class))
+            .isInstanceOfSatisfying(BudgetExceededException.class, e -> {
+                assertThat(e.limit()).isEqualTo(BudgetExceededException.Limit.BLOB_BYTES);
+                assertThat(e.actual()).isEqualTo(source.json().length);
+                assertThat(e.where()).isEqualTo("SourceObject.json");
+            });
+        assertThatThrownBy(() -> MAPPER.withBudget(MappingBudget.UNLIMITED.withMaxDepth(2)).map(source, Destination.class))
+            .isInstanceOfSatisfying(BudgetExceededException.class, e -> assertThat(e.limit()).isEqualTo(BudgetExceededException.Limit.DEPTH));
+        assertThatThrownBy(() -> MAPPER.withBudget(MappingBudget.UNLIMITED.withMaxJsonPathResults(1)).map(source, Destination.class))
+            .isInstanceOfSatisfying(BudgetExceededException.class, e -> {
+                assertThat(e.limit()).isEqualTo(BudgetExceededException.Limit.JSON_PATH_RESULTS);
+                assertThat(e.actual()).isEqualTo(2);
+            });
+        assertThatThrownBy(() -> MAPPER.withBudget(MappingBudget.UNLIMITED.withMaxTime(Duration.ZERO)).map(source, Destination.class))
+            .isInstanceOfSatisfying(BudgetExceededException.class, e -> assertThat(e.limit()).isEqualTo(BudgetExceededException.Limit.TIME));
+
+        // limits of the object mapper itself are not about the budget
+        ObjectMapper shortNumbers = JsonMappers.strict();
+        shortNumbers.getFactory().setStreamReadConstraints(StreamReadConstraints.builder().maxNumberLength(5).build());
+        SourceObject longNumber = new SourceObject();
+        longNumber.json("{\"title\": \"foobar\", \"number\": 12345678901234567890}".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> MAPPER.withObjectMapper(shortNumbers).withBudget(MappingBudget.UNLIMITED.withMaxBlobBytes(1000).withMaxDepth(3)).map(longNumber, Destination.class))
+            .isNotInstanceOf(BudgetExceededException.class)
+            .hasRootCauseInstanceOf(StreamConstraintsException.class);
+    }
+
+    @Test
+    void indexesJson() {
+        Mapper indexing = MAPPER.withIndexesJson(true);
+        SourceObject source = new SourceObject();
+        source.json("""
+            {"title": "foobar", "scores": [3, 1], "tags": ["a"], "counts": {"x": 1}, "location": {"x": 1.5, "y": 2}}
+            """.getBytes(StandardCharsets.UTF_8));
+        source.moreJson("""
+            {"a": {"b": {"value": "bla"}}}
+            """);
+        Destination destination = indexing.map(source, Destination.class);
+        assertThat(destination.title()).isEqualTo("foobar");
+        assertThat(destination.description()).isEqualTo("bla");
+        assertThat(indexing.map(source, TypedDestination.class)).isEqualTo(MAPPER.map(source, TypedDestination.class));
+
+        // not strict json, so parsed as a tree
+        source.json("{'title': 'lenient'}".getBytes(StandardCharsets.UTF_8));
+        assertThat(indexing.map(source, Destination.class).title()).isEqualTo("lenient");
+    }
+
     @Test
 
     public void jsonPath() {
@@ -0,0 +1,41 @@
+package org.meeuw.mapping.impl;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.meeuw.mapping.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log4j2
+class PathAccessorTest {
+
+    @Test
+    void inheritedField() {
+        ExtendedSourceObject value = new ExtendedSourceObject();
+        value.title("foobar");
+
+        Optional<Object> title = PathAccessor.of("title").follow(value);
+        assertThat(title).contains("foobar");
+    }
+
+    @Test
+    void polymorphic() {
+        PathAccessor accessor = PathAccessor.of("title");
+        assertThat(accessor.follow(new SourceObject().title("a"))).contains("a");
+        assertThat(accessor.follow(new ExtendedSourceObject().title("b"))).contains("b");
+        assertThat(accessor.follow(new Destination())).isEmpty();
+        assertThat(accessor.follow(new AnotherDestination())).isEmpty();
+        assertThat(accessor.follow(new DestinationRecord("c"))).contains("c");
+        // megamorphic now, but should still work
+        assertThat(accessor.follow(new ExtendedSourceObject().title("d"))).contains("d");
+    }
+
+    @Test
+    void cached() {
+        assertThat(PathAccessor.of("a", "b")).isSameAs(PathAccessor.of("a", "b"));
+        assertThat(PathAccessor.of("a", "b").toString()).isEqualTo("a.b");
+    }
+}
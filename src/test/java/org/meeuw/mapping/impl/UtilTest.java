@@ -17,6 +17,13 @@ class UtilTest {
 
 
 
+   @Test
+   void destinationFields() {
+       // the fields of the superclass are resolved while resolving the ones of the class itself
+       assertThat(Util.destinationFields(AnotherDestination.class)).first().extracting(Field::getName).isEqualTo("title");
+       assertThat(Util.destinationFields(AbstractDestination.class)).extracting(Field::getName).containsExactly("title");
+   }
+
    @Test
    void getSourceField() {
        {
@@ -39,6 +46,15 @@ class UtilTest {
        assertThat(moreJson).contains(source.moreJson());
    }
 
+   @Test
+   void getSourceValueOfDeclaredField() throws NoSuchFieldException {
+       SourceObject source = new SourceObject();
+       source.moreJson("{'title': 'foobar'}");
+       // not made accessible by the caller
+       Field field = SourceObject.class.getDeclaredField("moreJson");
+       assertThat(Util.getSourceValue(source, field)).contains(source.moreJson());
+   }
+
     @Test
     void getExtendedSourceValue() {
         ExtendedSourceObject source = new ExtendedSourceObject();
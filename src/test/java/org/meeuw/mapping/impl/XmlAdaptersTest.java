@@ -0,0 +1,122 @@
+package org.meeuw.mapping.impl;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.xml.bind.annotation.adapters.XmlAdapter;
+import jakarta.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import org.junit.jupiter.api.Test;
+import org.meeuw.mapping.annotations.ThreadSafe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Log4j2
+class XmlAdaptersTest {
+
+    static final AtomicInteger UNSAFE_INSTANCES = new AtomicInteger();
+    static final AtomicInteger SAFE_INSTANCES = new AtomicInteger();
+
+    public static class UnsafeAdapter extends XmlAdapter<String, Integer> {
+        public UnsafeAdapter() {
+            UNSAFE_INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public Integer unmarshal(String v) {
+            return Integer.valueOf(v);
+        }
+
+        @Override
+        public String marshal(Integer v) {
+            return String.valueOf(v);
+        }
+    }
+
+    @ThreadSafe
+    public static class SafeAdapter extends XmlAdapter<String, Integer> {
+        public SafeAdapter() {
+            SAFE_INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public Integer unmarshal(String v) {
+            return Integer.valueOf(v);
+        }
+
+        @Override
+        public String marshal(Integer v) {
+            return String.valueOf(v);
+        }
+    }
+
+    @XmlJavaTypeAdapter(Celsius.Adapter.class)
+    public record Celsius(double value) {
+        public static class Adapter extends XmlAdapter<String, Celsius> {
+            @Override
+            public Celsius unmarshal(String v) {
+                return new Celsius(Double.parseDouble(v));
+            }
+
+            @Override
+            public String marshal(Celsius v) {
+                return String.valueOf(v.value());
+            }
+        }
+    }
+
+    static class Fields {
+        @XmlJavaTypeAdapter(UnsafeAdapter.class)
+        Integer unsafe;
+
+        @XmlJavaTypeAdapter(SafeAdapter.class)
+        Integer safe;
+
+        Celsius temperature;
+
+        Integer none;
+    }
+
+    @Test
+    void typeLevel() throws NoSuchFieldException {
+        XmlAdapters.Adapter adapter = XmlAdapters.forField(Fields.class.getDeclaredField("temperature"));
+        assertThat(adapter.adapterClass()).isEqualTo(Celsius.Adapter.class);
+        assertThat(adapter.unmarshal("21.5")).isEqualTo(new Celsius(21.5));
+
+        assertThat(XmlAdapters.forField(Fields.class.getDeclaredField("none"))).isNull();
+    }
+
+    @Test
+    void threadSafety() throws Exception {
+        XmlAdapters.Adapter unsafe = XmlAdapters.forField(Fields.class.getDeclaredField("unsafe"));
+        XmlAdapters.Adapter safe = XmlAdapters.forField(Fields.class.getDeclaredField("safe"));
+        assertThat(XmlAdapters.forField(Fields.class.getDeclaredField("safe"))).isSameAs(safe);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch latch = new CountDownLatch(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final String value = String.valueOf(i);
+                futures.add(executor.submit(() -> {
+                    // make sure all four threads are used
+                    latch.countDown();
+                    latch.await();
+                    assertThat(unsafe.unmarshal(value)).isEqualTo(Integer.valueOf(value));
+                    assertThat(safe.unmarshal(value)).isEqualTo(Integer.valueOf(value));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(UNSAFE_INSTANCES.get()).isEqualTo(4);
+        assertThat(SAFE_INSTANCES.get()).isEqualTo(1);
+    }
+}